@@ -0,0 +1,84 @@
+package com.vertx;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Helpers shared by the benchmarks: deploying the order shards on a temporary journal directory and preloading them with orders.
+ */
+public final class BenchmarkSupport {
+
+    public static final Integer PRELOAD_BATCH_SIZE = 1000;
+
+    // kept in a field, the level of a logger that is no longer referenced can be lost
+    private static final Logger appLogger = Logger.getLogger(BenchmarkSupport.class.getPackageName());
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * This method turns off the per request info logs of the verticles, so the benchmarks measure the request path only.
+     */
+    public static void quietLogging() {
+        appLogger.setLevel(Level.WARNING);
+    }
+
+    public static String deploy(Vertx vertx, Class<? extends Verticle> verticle, JsonObject config) {
+        return BlockingSupport.await(handler -> vertx.deployVerticle(verticle.getName(), new DeploymentOptions().setConfig(config), handler));
+    }
+
+    /**
+     * This method deploys one OrderVerticle per shard, every shard journals into its own directory of journalDir.
+     */
+    public static void deployOrderShards(Vertx vertx, Path journalDir, int shards) {
+        for (int shard = 0; shard < shards; shard++) {
+            deploy(vertx, OrderVerticle.class, new JsonObject()
+                    .put("shard", shard)
+                    .put("shards", shards)
+                    .put("journalDir", journalDir.resolve("shard-" + shard).toString()));
+        }
+    }
+
+    /**
+     * This method adds count orders (order-0 ... order-count-1) to the shards, in batches through the addOrders addresses.
+     */
+    public static void preloadOrders(Vertx vertx, int shards, int count) {
+        List<List<Order>> batches = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            batches.add(new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            Order order = newOrder("order-" + i);
+            int shard = OrderShards.shardOf(order.getOrderId(), shards);
+            batches.get(shard).add(order);
+            if (batches.get(shard).size() == PRELOAD_BATCH_SIZE) {
+                addOrders(vertx, shard, batches.get(shard));
+                batches.set(shard, new ArrayList<>());
+            }
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            if (!batches.get(shard).isEmpty()) {
+                addOrders(vertx, shard, batches.get(shard));
+            }
+        }
+    }
+
+    private static void addOrders(Vertx vertx, int shard, List<Order> orders) {
+        String address = OrderShards.address(OrderShards.ADD_ORDERS_ADDRESS, shard);
+        OrderBatch batch = new OrderBatch(orders);
+        BlockingSupport.<Message<OrderBatchResult>>await(handler -> vertx.eventBus().request(address, batch, handler));
+    }
+
+    public static Order newOrder(String orderId) {
+        return new Order(orderId, "order name of " + orderId, "2023-04-03");
+    }
+}
@@ -0,0 +1,34 @@
+package com.vertx;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Size of the message encoded by a benchmark, reported by JMH as the "bytes" secondary result of the benchmarks that
+ * take this state as a parameter.
+ * An EVENTS counter is reset before every iteration and summed over the measurement iterations, so every iteration
+ * records its share of the size (the value printed after each iteration) and the result is the size itself.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class EncodedBytes {
+
+    public double bytes;
+    private double iterationShare;
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkParams params) {
+        iterationShare = 1.0 / params.getMeasurement().getCount();
+    }
+
+    /**
+     * This method records the size of the latest encoded message, it is a single store so it can be called on every operation.
+     */
+    public void record(int length) {
+        bytes = length * iterationShare;
+    }
+}
@@ -0,0 +1,116 @@
+package com.vertx;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.WebClientSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End to end latency of the HTTP API: a logged in WebClient session against a RestVerticle and the order shards,
+ * all deployed in one local (non clustered) Vert.x instance, so the Event Bus hops stay in the JVM.
+ * It shows the share of the HTTP, session and routing layers compared to OrderVerticleBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpRoundTripBenchmark {
+
+    public static final String HOST = "localhost";
+
+    @Param({"1000"})
+    public int storedOrders;
+
+    private final AtomicLong nextOrderId = new AtomicLong();
+
+    private Vertx vertx;
+    private Path journalDir;
+    private WebClientSession client;
+    private int port;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkSupport.quietLogging();
+        journalDir = Files.createTempDirectory("order-journal-benchmark");
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        vertx = Vertx.vertx();
+        OrderCodecs.register(vertx.eventBus());
+        BenchmarkSupport.deployOrderShards(vertx, journalDir, OrderShards.count());
+        BenchmarkSupport.preloadOrders(vertx, OrderShards.count(), storedOrders);
+        BenchmarkSupport.deploy(vertx, RestVerticle.class, new JsonObject().put("httpPort", port));
+
+        client = WebClientSession.create(WebClient.create(vertx, new WebClientOptions().setKeepAlive(true)));
+        JsonObject credentials = new JsonObject().put("username", "admin").put("password", "1234");
+        HttpResponse<Buffer> login = BlockingSupport.await(handler ->
+                client.post(port, HOST, "/login").sendJsonObject(credentials, handler));
+        if (login.statusCode() != RestVerticle.HTTP_STATUS_OKAY) {
+            throw new IllegalStateException("login failed with status " + login.statusCode() + ": " + login.bodyAsString());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        BlockingSupport.<Void>await(vertx::close);
+        BlockingSupport.deleteDirectory(journalDir);
+    }
+
+    @Benchmark
+    public Buffer getOrders() {
+        HttpResponse<Buffer> response = BlockingSupport.await(handler ->
+                client.get(port, HOST, "/get-orders?limit=" + RestVerticle.DEFAULT_PAGE_LIMIT).send(handler));
+        return checked(response);
+    }
+
+    @Benchmark
+    public Buffer getOrder() {
+        HttpResponse<Buffer> response = BlockingSupport.await(handler ->
+                client.get(port, HOST, "/orders/order-" + (nextOrderId.getAndIncrement() % storedOrders)).send(handler));
+        return checked(response);
+    }
+
+    @Benchmark
+    public Buffer addOrder() {
+        JsonObject order = new JsonObject()
+                .put("orderID", "benchmark-order-" + nextOrderId.getAndIncrement())
+                .put("orderName", "benchmark order")
+                .put("orderDate", "2023-04-03");
+        HttpResponse<Buffer> response = BlockingSupport.await(handler ->
+                client.post(port, HOST, "/add-order").sendJsonObject(order, handler));
+        return checked(response);
+    }
+
+    private static Buffer checked(HttpResponse<Buffer> response) {
+        if (response.statusCode() != RestVerticle.HTTP_STATUS_OKAY) {
+            throw new IllegalStateException("unexpected status " + response.statusCode() + ": " + response.bodyAsString());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,75 @@
+package com.vertx;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the JSON bodies of the HTTP API: an order page encoded with Json.encodePrettily (used by the
+ * single response endpoints) against the compact encoding, and the decoding of both.
+ * The number of bytes of both encodings is reported by the encode benchmarks as their "bytes" secondary result
+ * (see EncodedBytes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonEncodingBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int pageSize;
+
+    private JsonObject page;
+    private String pretty;
+    private String compact;
+
+    @Setup
+    public void setup() {
+        JsonArray orders = new JsonArray();
+        for (int i = 0; i < pageSize; i++) {
+            orders.add(BenchmarkSupport.newOrder("order-" + i).toJson());
+        }
+        page = new JsonObject().put("orders", orders).put("nextCursor", "MTpxMDA");
+        pretty = Json.encodePrettily(page);
+        compact = page.encode();
+    }
+
+    @Benchmark
+    public String encodePrettily(EncodedBytes bytes) {
+        String encoded = Json.encodePrettily(page);
+        bytes.record(encoded.length());
+        return encoded;
+    }
+
+    @Benchmark
+    public String encodeCompact(EncodedBytes bytes) {
+        String encoded = page.encode();
+        bytes.record(encoded.length());
+        return encoded;
+    }
+
+    @Benchmark
+    public JsonObject decodePrettily() {
+        return new JsonObject(pretty);
+    }
+
+    @Benchmark
+    public JsonObject decodeCompact() {
+        return new JsonObject(compact);
+    }
+}
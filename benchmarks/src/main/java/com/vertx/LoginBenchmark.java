@@ -0,0 +1,74 @@
+package com.vertx;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the /login credential check: CredentialStore.verify of a known user with the right and the wrong password,
+ * and of an unknown user (which is hashed too, so all three should take about the same time).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+    private Vertx vertx;
+    private Path usersFile;
+    private CredentialStore credentialStore;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkSupport.quietLogging();
+        usersFile = Files.createTempFile("users-benchmark", ".json");
+        JsonArray users = new JsonArray()
+                .add(new JsonObject().put("username", "admin").put("password", "1234"))
+                .add(new JsonObject().put("username", "user").put("password", "5678"));
+        Files.writeString(usersFile, users.encode());
+
+        vertx = Vertx.vertx();
+        credentialStore = new CredentialStore(vertx, usersFile.toString());
+        BlockingSupport.<Void>await(credentialStore::load);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BlockingSupport.<Void>await(vertx::close);
+        Files.deleteIfExists(usersFile);
+    }
+
+    @Benchmark
+    public Boolean verifyValidPassword() {
+        return BlockingSupport.await(handler -> credentialStore.verify("admin", "1234", handler));
+    }
+
+    @Benchmark
+    public Boolean verifyWrongPassword() {
+        return BlockingSupport.await(handler -> credentialStore.verify("admin", "wrong-password", handler));
+    }
+
+    @Benchmark
+    public Boolean verifyUnknownUser() {
+        return BlockingSupport.await(handler -> credentialStore.verify("unknown", "1234", handler));
+    }
+}
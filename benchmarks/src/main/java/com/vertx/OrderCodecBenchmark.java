@@ -0,0 +1,101 @@
+package com.vertx;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.impl.codecs.JsonObjectMessageCodec;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of an order page on the Event Bus: the binary OrderPage codec against the JSON messages
+ * used before (a JsonObject holding a JsonArray of orders).
+ * The wire* benchmarks are the clustered path, the local* benchmarks the path between verticles of the same JVM.
+ * The number of bytes on the wire of both formats is reported by the wireEncode* benchmarks as their "bytes"
+ * secondary result (see EncodedBytes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderCodecBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int pageSize;
+
+    private final JsonObjectMessageCodec jsonCodec = new JsonObjectMessageCodec();
+
+    private OrderPage binaryPage;
+    private JsonObject jsonPage;
+    private Buffer binaryWire;
+    private Buffer jsonWire;
+
+    @Setup
+    public void setup() {
+        List<Order> orders = new ArrayList<>();
+        JsonArray jsonOrders = new JsonArray();
+        for (int i = 0; i < pageSize; i++) {
+            Order order = new Order("order-" + i, "order name " + i, "2023-04-0" + (i % 9 + 1));
+            orders.add(order);
+            jsonOrders.add(order.toJson());
+        }
+        binaryPage = new OrderPage(orders, pageSize);
+        jsonPage = new JsonObject().put("orders", jsonOrders).put("size", pageSize);
+
+        binaryWire = Buffer.buffer();
+        OrderCodecs.ORDER_PAGE_CODEC.encodeToWire(binaryWire, binaryPage);
+        jsonWire = Buffer.buffer();
+        jsonCodec.encodeToWire(jsonWire, jsonPage);
+    }
+
+    @Benchmark
+    public Buffer wireEncodeBinary(EncodedBytes bytes) {
+        Buffer buffer = Buffer.buffer();
+        OrderCodecs.ORDER_PAGE_CODEC.encodeToWire(buffer, binaryPage);
+        bytes.record(buffer.length());
+        return buffer;
+    }
+
+    @Benchmark
+    public Buffer wireEncodeJson(EncodedBytes bytes) {
+        Buffer buffer = Buffer.buffer();
+        jsonCodec.encodeToWire(buffer, jsonPage);
+        bytes.record(buffer.length());
+        return buffer;
+    }
+
+    @Benchmark
+    public OrderPage wireDecodeBinary() {
+        return OrderCodecs.ORDER_PAGE_CODEC.decodeFromWire(0, binaryWire);
+    }
+
+    @Benchmark
+    public JsonObject wireDecodeJson() {
+        return jsonCodec.decodeFromWire(0, jsonWire);
+    }
+
+    @Benchmark
+    public OrderPage localTransformBinary() {
+        return OrderCodecs.ORDER_PAGE_CODEC.transform(binaryPage);
+    }
+
+    @Benchmark
+    public JsonObject localTransformJson() {
+        return jsonCodec.transform(jsonPage);
+    }
+}
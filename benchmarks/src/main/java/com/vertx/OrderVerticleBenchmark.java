@@ -0,0 +1,93 @@
+package com.vertx;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of the OrderVerticle Event Bus addresses of a single shard, with 1k, 100k and 1M orders already stored.
+ * The shard runs in a local (non clustered) Vert.x instance and journals into a temporary directory,
+ * so addOrder includes the journal write and fsync of the group commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class OrderVerticleBenchmark {
+
+    public static final Integer PAGE_LIMIT = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    public int storedOrders;
+
+    private final AtomicLong nextOrderId = new AtomicLong();
+
+    private Vertx vertx;
+    private Path journalDir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        journalDir = Files.createTempDirectory("order-journal-benchmark");
+        BenchmarkSupport.quietLogging();
+        vertx = Vertx.vertx();
+        OrderCodecs.register(vertx.eventBus());
+        BenchmarkSupport.deploy(vertx, OrderVerticle.class, new JsonObject()
+                .put("shard", 0)
+                .put("shards", 1)
+                .put("journalDir", journalDir.toString()));
+        BenchmarkSupport.preloadOrders(vertx, 1, storedOrders);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BlockingSupport.<Void>await(vertx::close);
+        BlockingSupport.deleteDirectory(journalDir);
+    }
+
+    @Benchmark
+    public OrderResult addOrder() {
+        Order order = BenchmarkSupport.newOrder("benchmark-order-" + nextOrderId.getAndIncrement());
+        Message<OrderResult> reply = BlockingSupport.await(handler ->
+                vertx.eventBus().request(OrderShards.address(OrderShards.ADD_ORDER_ADDRESS, 0), order, handler));
+        return reply.body();
+    }
+
+    @Benchmark
+    public OrderPage getOrders() {
+        int offset = ThreadLocalRandom.current().nextInt(Math.max(1, storedOrders - PAGE_LIMIT));
+        JsonObject page = new JsonObject().put("offset", offset).put("limit", PAGE_LIMIT);
+        Message<OrderPage> reply = BlockingSupport.await(handler ->
+                vertx.eventBus().request(OrderShards.address(OrderShards.GET_ORDERS_ADDRESS, 0), page, handler));
+        return reply.body();
+    }
+
+    @Benchmark
+    public Order getOrder() {
+        String orderId = "order-" + ThreadLocalRandom.current().nextInt(storedOrders);
+        Message<Order> reply = BlockingSupport.await(handler ->
+                vertx.eventBus().request(OrderShards.address(OrderShards.GET_ORDER_ADDRESS, 0), orderId, handler));
+        return reply.body();
+    }
+}
@@ -0,0 +1,65 @@
+package com.vertx;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+public class EmbeddedMain {
+
+    private static final Logger log = Logger.getLogger(EmbeddedMain.class.getPackageName());
+
+    /**
+     * To run the whole application in a single process, the main class deploys the OrderVerticle shards and the RestVerticle
+     * on one local (non clustered) Vert.x instance.
+     * There is no cluster to join and the verticles talk over the local Event Bus, the orders are passed by reference
+     * instead of being serialized, and the sessions are kept in a local session store.
+     * The shards (-Dorder.shards) are deployed first, the RestVerticle (-Drest.instances, one per core by default) once they are ready.
+     * The metrics of both modules are exposed on http://localhost:9090/metrics (-Dmetrics.port and -Dmetrics.host override it).
+     * The startup time of every step is logged, to compare with the clustered Main and OrderMain classes.
+     */
+    public static void main(String[] args) {
+        AsyncLogHandler.install();
+        long startTime = System.nanoTime();
+        Integer metricsPort = Integer.getInteger(AppMetrics.METRICS_PORT_PROPERTY, AppMetrics.DEFAULT_REST_METRICS_PORT);
+        Vertx vertx = Vertx.vertx(new VertxOptions().setMetricsOptions(AppMetrics.metricsOptions(metricsPort)));
+        long vertxTime = System.nanoTime();
+        log.info("Embedded= main.main: vertx created, ms= " + TimeUnit.NANOSECONDS.toMillis(vertxTime - startTime));
+
+        int shards = OrderShards.count();
+        log.info("Embedded= main.main: going to deploy OrderVerticle, shards= " + shards);
+        AtomicInteger deployed = new AtomicInteger();
+        for (int shard = 0; shard < shards; shard++) {
+            JsonObject config = new JsonObject().put("shard", shard).put("shards", shards);
+            vertx.deployVerticle(OrderVerticle.class.getName(), new DeploymentOptions().setConfig(config), result -> {
+                if (result.failed()) {
+                    log.info("Embedded= main.main: OrderVerticle deployment failed, cause: " + result.cause());
+                    vertx.close();
+                } else if (deployed.incrementAndGet() == shards) {
+                    long shardsTime = System.nanoTime();
+                    log.info("Embedded= main.main: shards deployed, ms= " + TimeUnit.NANOSECONDS.toMillis(shardsTime - vertxTime));
+                    deployRestVerticle(vertx, startTime, shardsTime);
+                }
+            });
+        }
+    }
+
+    private static void deployRestVerticle(Vertx vertx, long startTime, long shardsTime) {
+        int instances = Integer.getInteger(Main.REST_INSTANCES_PROPERTY, Runtime.getRuntime().availableProcessors());
+        log.info("Embedded= main.main: going to deploy RestVerticle, instances= " + instances);
+        vertx.deployVerticle(RestVerticle.class.getName(), new DeploymentOptions().setInstances(instances), result -> {
+            if (result.failed()) {
+                log.info("Embedded= main.main: RestVerticle deployment failed, cause: " + result.cause());
+                vertx.close();
+                return;
+            }
+            long now = System.nanoTime();
+            log.info("Embedded= main.main: RestVerticle deployed, ms= " + TimeUnit.NANOSECONDS.toMillis(now - shardsTime)
+                    + " startup ms= " + TimeUnit.NANOSECONDS.toMillis(now - startTime));
+        });
+    }
+}
@@ -0,0 +1,232 @@
+package com.vertx;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.WebClientSession;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Open loop load generator: the requests are sent at a fixed rate whatever the response times are,
+ * and the latency of every request is measured from the time it was scheduled to be sent, not from the time it
+ * was actually sent. A stall of the server (or of the generator) therefore shows up in the percentiles
+ * instead of silently lowering the request rate (coordinated omission).
+ * All the requests are sent from a single event loop of the client Vert.x instance, over a pool of logged in sessions.
+ */
+public class LoadGenerator {
+
+    private static final Logger log = Logger.getLogger(LoadGenerator.class.getPackageName());
+
+    public static final Long TICK_MS = 1L;
+    public static final Integer GET_ORDERS_LIMIT = 100;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Vertx vertx;
+    private final LoadTestOptions options;
+    private final WebClient webClient;
+    private final List<WebClientSession> sessions = new ArrayList<>();
+    private final LoadOperation[] operations;
+    private final int[] cumulativeWeights;
+    private final Map<LoadOperation, OperationStats> stats = new EnumMap<>(LoadOperation.class);
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final long warmupRequests;
+    private final long totalRequests;
+    private long startNanos;
+    private long sent;
+    private long completed;
+    private Handler<AsyncResult<JsonObject>> handler;
+
+    public LoadGenerator(Vertx vertx, LoadTestOptions options) {
+        this.vertx = vertx;
+        this.options = options;
+        this.webClient = WebClient.create(vertx, new WebClientOptions()
+                .setDefaultHost(options.getHost())
+                .setDefaultPort(options.getPort())
+                .setKeepAlive(true)
+                .setMaxPoolSize(options.getConnections())
+                .setMaxWaitQueueSize(-1));
+        for (int i = 0; i < options.getSessions(); i++) {
+            sessions.add(WebClientSession.create(webClient));
+        }
+
+        operations = options.getMix().keySet().toArray(new LoadOperation[0]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += options.getMix().get(operations[i]);
+            cumulativeWeights[i] = total;
+            stats.put(operations[i], new OperationStats());
+        }
+        warmupRequests = (long) options.getRate() * options.getWarmupSeconds();
+        totalRequests = warmupRequests + (long) options.getRate() * options.getDurationSeconds();
+    }
+
+    /**
+     * This method logs in every session, then runs the warmup and the measured phase.
+     * The handler receives the report once every request completed (a request that does not get a response
+     * fails after load.timeoutMs), the requests of the warmup phase are not part of the report.
+     */
+    public void run(Handler<AsyncResult<JsonObject>> handler) {
+        this.handler = handler;
+        vertx.runOnContext(v -> login(0));
+    }
+
+    private void login(int sessionIndex) {
+        if (sessionIndex == sessions.size()) {
+            log.info("loadGenerator.login: " + sessions.size() + " sessions logged in, going to send " + totalRequests + " requests");
+            startNanos = System.nanoTime();
+            vertx.setPeriodic(TICK_MS, this::tick);
+            return;
+        }
+        sendLogin(sessions.get(sessionIndex), asyncResult -> {
+            if (asyncResult.failed() || asyncResult.result().statusCode() != RestVerticle.HTTP_STATUS_OKAY) {
+                String cause = asyncResult.failed() ? asyncResult.cause().getMessage() : "status " + asyncResult.result().statusCode();
+                webClient.close();
+                handler.handle(Future.failedFuture("login of the load test sessions failed: " + cause));
+                return;
+            }
+            login(sessionIndex + 1);
+        });
+    }
+
+    /**
+     * This method sends every request whose scheduled time has passed, the schedule does not depend on the responses.
+     */
+    private void tick(long timerId) {
+        long due = Math.min(totalRequests, (System.nanoTime() - startNanos) * options.getRate() / NANOS_PER_SECOND + 1);
+        while (sent < due) {
+            long scheduledNanos = startNanos + sent * NANOS_PER_SECOND / options.getRate();
+            send(nextOperation(), sent, scheduledNanos, sent >= warmupRequests);
+            sent++;
+        }
+        if (sent == totalRequests) {
+            vertx.cancelTimer(timerId);
+        }
+    }
+
+    private LoadOperation nextOperation() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void send(LoadOperation operation, long index, long scheduledNanos, boolean measured) {
+        WebClientSession session = sessions.get((int) (index % sessions.size()));
+        Handler<AsyncResult<HttpResponse<Buffer>>> responseHandler = asyncResult -> complete(operation, scheduledNanos, measured, asyncResult);
+        switch (operation) {
+            case LOGIN:
+                sendLogin(session, responseHandler);
+                break;
+            case ADD_ORDER:
+                JsonObject order = new JsonObject()
+                        .put("orderID", "load-" + runId + "-" + index)
+                        .put("orderName", "load test order " + index)
+                        .put("orderDate", "2023-04-03");
+                session.post("/add-order").timeout(options.getTimeoutMs()).sendJsonObject(order, responseHandler);
+                break;
+            default:
+                session.get("/get-orders?limit=" + GET_ORDERS_LIMIT).timeout(options.getTimeoutMs()).send(responseHandler);
+                break;
+        }
+    }
+
+    private void sendLogin(WebClientSession session, Handler<AsyncResult<HttpResponse<Buffer>>> responseHandler) {
+        JsonObject credentials = new JsonObject().put("username", options.getUsername()).put("password", options.getPassword());
+        session.post("/login").timeout(options.getTimeoutMs()).sendJsonObject(credentials, responseHandler);
+    }
+
+    private void complete(LoadOperation operation, long scheduledNanos, boolean measured, AsyncResult<HttpResponse<Buffer>> asyncResult) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos);
+        completed++;
+        if (measured) {
+            OperationStats operationStats = stats.get(operation);
+            operationStats.requests++;
+            operationStats.latency.recordValue(Math.max(0, latencyMicros));
+            if (asyncResult.failed()) {
+                operationStats.error(asyncResult.cause().getClass().getSimpleName());
+            } else if (asyncResult.result().statusCode() != RestVerticle.HTTP_STATUS_OKAY) {
+                operationStats.error("status " + asyncResult.result().statusCode());
+            }
+        }
+        if (completed == totalRequests) {
+            webClient.close();
+            handler.handle(Future.succeededFuture(report()));
+        }
+    }
+
+    /**
+     * This method builds the report of the measured phase: per operation and in total, the number of requests,
+     * the throughput of successful requests, the errors by cause and the latency percentiles in milliseconds.
+     */
+    private JsonObject report() {
+        JsonObject operationsReport = new JsonObject();
+        OperationStats total = new OperationStats();
+        for (Map.Entry<LoadOperation, OperationStats> entry : stats.entrySet()) {
+            operationsReport.put(entry.getKey().getOperationName(), entry.getValue().toJson(options.getDurationSeconds()));
+            total.add(entry.getValue());
+        }
+        return new JsonObject()
+                .put("mode", options.getMode())
+                .put("targetRate", options.getRate())
+                .put("durationSeconds", options.getDurationSeconds())
+                .put("total", total.toJson(options.getDurationSeconds()))
+                .put("operations", operationsReport);
+    }
+
+    private static class OperationStats {
+        private final Histogram latency = new Histogram(3);
+        private final Map<String, Long> errors = new TreeMap<>();
+        private long requests;
+        private long errorCount;
+
+        private void error(String cause) {
+            errorCount++;
+            errors.merge(cause, 1L, Long::sum);
+        }
+
+        private void add(OperationStats other) {
+            latency.add(other.latency);
+            requests += other.requests;
+            errorCount += other.errorCount;
+            other.errors.forEach((cause, count) -> errors.merge(cause, count, Long::sum));
+        }
+
+        private JsonObject toJson(int durationSeconds) {
+            JsonObject errorsJson = new JsonObject();
+            errors.forEach(errorsJson::put);
+            return new JsonObject()
+                    .put("requests", requests)
+                    .put("errors", errorCount)
+                    .put("errorsByCause", errorsJson)
+                    .put("throughput", (double) (requests - errorCount) / durationSeconds)
+                    .put("p50Ms", millis(latency.getValueAtPercentile(50.0)))
+                    .put("p99Ms", millis(latency.getValueAtPercentile(99.0)))
+                    .put("p999Ms", millis(latency.getValueAtPercentile(99.9)))
+                    .put("maxMs", millis(latency.getMaxValue()));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
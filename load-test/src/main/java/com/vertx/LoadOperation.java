@@ -0,0 +1,35 @@
+package com.vertx;
+
+/**
+ * The HTTP requests the load test can send, named after their route.
+ */
+public enum LoadOperation {
+
+    LOGIN("login"),
+    ADD_ORDER("add-order"),
+    GET_ORDERS("get-orders");
+
+    private final String operationName;
+
+    LoadOperation(String operationName) {
+        this.operationName = operationName;
+    }
+
+    public String getOperationName() {
+        return operationName;
+    }
+
+    public static LoadOperation fromName(String operationName) {
+        for (LoadOperation operation : values()) {
+            if (operation.operationName.equals(operationName)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("unknown load operation: " + operationName);
+    }
+
+    @Override
+    public String toString() {
+        return operationName;
+    }
+}
@@ -0,0 +1,145 @@
+package com.vertx;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * End to end load test of the application, run before every release to catch latency and throughput regressions.
+ * Depending on -Dload.mode, the application is deployed:
+ * embedded - the RestVerticle and OrderVerticle modules in this JVM, on one local (non clustered) Vert.x instance,
+ * clustered - the RestVerticle in this JVM and the OrderVerticle shards in a second JVM, clustered over loopback,
+ * remote - not at all, the requests are sent to an already running deployment (-Dload.host, -Dload.port).
+ * The requests are sent by a LoadGenerator running on its own Vert.x instance, and the report is logged
+ * and written in JSON to -Dload.reportFile (target/load-test-report.json by default).
+ */
+public class LoadTest {
+
+    private static final Logger log = Logger.getLogger(LoadTest.class.getPackageName());
+
+    public static final Long STARTUP_TIMEOUT_SECONDS = 120L;
+    public static final Long SHARD_POLL_INTERVAL_MS = 500L;
+
+    public static void main(String[] args) throws Exception {
+        AsyncLogHandler.install();
+        LoadTestOptions options = LoadTestOptions.fromSystemProperties();
+        log.info("loadTest.main: going to run the load test, " + options);
+
+        Path journalDir = Files.createTempDirectory("load-test-journal");
+        Process orderNode = null;
+        Vertx serverVertx = null;
+        Vertx clientVertx = Vertx.vertx();
+        try {
+            if (LoadTestOptions.MODE_EMBEDDED.equals(options.getMode())) {
+                serverVertx = Vertx.vertx(new VertxOptions().setMetricsOptions(AppMetrics.metricsOptions(null)));
+                deployOrderShards(serverVertx, journalDir);
+                deployRestVerticle(serverVertx, options);
+            } else if (LoadTestOptions.MODE_CLUSTERED.equals(options.getMode())) {
+                orderNode = startOrderNode(journalDir);
+                serverVertx = BlockingSupport.await(handler -> Vertx.clusteredVertx(LoadTestCluster.loopbackOptions(), handler), STARTUP_TIMEOUT_SECONDS);
+                awaitOrderShards(serverVertx);
+                deployRestVerticle(serverVertx, options);
+            }
+
+            long runTimeoutSeconds = options.getWarmupSeconds() + options.getDurationSeconds() + STARTUP_TIMEOUT_SECONDS;
+            JsonObject report = BlockingSupport.await(new LoadGenerator(clientVertx, options)::run, runTimeoutSeconds);
+            log.info("loadTest.main: load test report\n" + report.encodePrettily());
+            Path reportFile = Paths.get(options.getReportFile());
+            if (reportFile.getParent() != null) {
+                Files.createDirectories(reportFile.getParent());
+            }
+            Files.writeString(reportFile, report.encodePrettily());
+            log.info("loadTest.main: report written to " + reportFile.toAbsolutePath());
+        } finally {
+            close(clientVertx);
+            if (serverVertx != null) {
+                close(serverVertx);
+            }
+            if (orderNode != null) {
+                orderNode.destroy();
+                orderNode.waitFor(30, TimeUnit.SECONDS);
+            }
+            BlockingSupport.deleteDirectory(journalDir);
+        }
+        System.exit(0);
+    }
+
+    private static void deployOrderShards(Vertx vertx, Path journalDir) {
+        int shards = OrderShards.count();
+        for (int shard = 0; shard < shards; shard++) {
+            JsonObject config = new JsonObject()
+                    .put("shard", shard)
+                    .put("shards", shards)
+                    .put("journalDir", journalDir.resolve("shard-" + shard).toString());
+            BlockingSupport.<String>await(handler -> vertx.deployVerticle(OrderVerticle.class.getName(), new DeploymentOptions().setConfig(config), handler),
+                    STARTUP_TIMEOUT_SECONDS);
+        }
+    }
+
+    private static void deployRestVerticle(Vertx vertx, LoadTestOptions options) {
+        DeploymentOptions deploymentOptions = new DeploymentOptions()
+                .setInstances(options.getRestInstances())
+                .setConfig(new JsonObject().put("httpPort", options.getPort()));
+        BlockingSupport.<String>await(handler -> vertx.deployVerticle(RestVerticle.class.getName(), deploymentOptions, handler), STARTUP_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * This method starts the OrderVerticle JVM of the clustered mode, with the same classpath and number of shards.
+     */
+    private static Process startOrderNode(Path journalDir) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder processBuilder = new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                "-D" + OrderShards.SHARDS_PROPERTY + "=" + OrderShards.count(),
+                LoadTestNode.class.getName(),
+                journalDir.toString());
+        log.info("loadTest.startOrderNode: going to start the OrderVerticle JVM");
+        return processBuilder.inheritIO().start();
+    }
+
+    /**
+     * This method waits until every shard of the OrderVerticle JVM answers on the Event Bus.
+     */
+    private static void awaitOrderShards(Vertx vertx) {
+        OrderCodecs.register(vertx.eventBus());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STARTUP_TIMEOUT_SECONDS);
+        JsonObject firstOrder = new JsonObject().put("offset", 0).put("limit", 1);
+        for (int shard = 0; shard < OrderShards.count(); shard++) {
+            String address = OrderShards.address(OrderShards.GET_ORDERS_ADDRESS, shard);
+            while (true) {
+                CompletableFuture<Boolean> reachable = new CompletableFuture<>();
+                vertx.eventBus().request(address, firstOrder, reply -> reachable.complete(reply.succeeded()));
+                if (reachable.join()) {
+                    break;
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("the OrderVerticle JVM did not start in " + STARTUP_TIMEOUT_SECONDS + "s");
+                }
+                sleep(SHARD_POLL_INTERVAL_MS);
+            }
+        }
+        log.info("loadTest.awaitOrderShards: all the " + OrderShards.count() + " shards are reachable");
+    }
+
+    private static void close(Vertx vertx) {
+        BlockingSupport.<Void>await(vertx::close);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.vertx;
+
+import io.vertx.core.VertxOptions;
+
+import java.util.List;
+
+/**
+ * Cluster settings of the clustered load test: both JVMs join over TCP on the loopback interface only,
+ * so the run does not depend on multicast or on the network of the machine.
+ */
+public final class LoadTestCluster {
+
+    public static final String LOOPBACK_HOST = "127.0.0.1";
+
+    private LoadTestCluster() {
+    }
+
+    public static VertxOptions loopbackOptions() {
+        return ClusterConfig.clusteredOptions(LOOPBACK_HOST, List.of(LOOPBACK_HOST))
+                .setMetricsOptions(AppMetrics.metricsOptions(null));
+    }
+}
@@ -0,0 +1,39 @@
+package com.vertx;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.logging.Logger;
+
+/**
+ * The OrderVerticle JVM of the clustered load test, started by LoadTest as a child process with the journal
+ * directory as its only argument. It joins the loopback cluster, deploys one OrderVerticle per shard
+ * and runs until the load test destroys the process.
+ */
+public class LoadTestNode {
+
+    private static final Logger log = Logger.getLogger(LoadTestNode.class.getPackageName());
+
+    public static void main(String[] args) {
+        AsyncLogHandler.install();
+        String journalDir = args[0];
+        log.info("loadTestNode.main: going to join the loopback cluster, journalDir= " + journalDir);
+        Vertx.clusteredVertx(LoadTestCluster.loopbackOptions(), result -> {
+            if (result.failed()) {
+                log.severe("loadTestNode.main: can't join the cluster, cause: " + result.cause());
+                System.exit(1);
+                return;
+            }
+            Vertx vertx = result.result();
+            int shards = OrderShards.count();
+            for (int shard = 0; shard < shards; shard++) {
+                JsonObject config = new JsonObject()
+                        .put("shard", shard)
+                        .put("shards", shards)
+                        .put("journalDir", journalDir + "/shard-" + shard);
+                vertx.deployVerticle(OrderVerticle.class, new DeploymentOptions().setConfig(config));
+            }
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package com.vertx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from -Dload.* system properties so the same jar can be run before every release
+ * with a different rate or mix, e.g. -Dload.rate=2000 -Dload.mix=login=5,add-order=25,get-orders=70.
+ */
+public class LoadTestOptions {
+
+    public static final String MODE_EMBEDDED = "embedded";
+    public static final String MODE_CLUSTERED = "clustered";
+    public static final String MODE_REMOTE = "remote";
+
+    public static final String DEFAULT_MIX = "login=5,add-order=25,get-orders=70";
+
+    private final String mode;
+    private final String host;
+    private final int port;
+    private final int rate;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final Map<LoadOperation, Integer> mix;
+    private final int sessions;
+    private final int connections;
+    private final int timeoutMs;
+    private final int restInstances;
+    private final String username;
+    private final String password;
+    private final String reportFile;
+
+    private LoadTestOptions(String mode, String host, int port, int rate, int durationSeconds, int warmupSeconds,
+                            Map<LoadOperation, Integer> mix, int sessions, int connections, int timeoutMs,
+                            int restInstances, String username, String password, String reportFile) {
+        this.mode = mode;
+        this.host = host;
+        this.port = port;
+        this.rate = rate;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.mix = mix;
+        this.sessions = sessions;
+        this.connections = connections;
+        this.timeoutMs = timeoutMs;
+        this.restInstances = restInstances;
+        this.username = username;
+        this.password = password;
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * This method reads the options from the system properties, an invalid value fails with IllegalArgumentException.
+     */
+    public static LoadTestOptions fromSystemProperties() {
+        String mode = System.getProperty("load.mode", MODE_EMBEDDED);
+        if (!MODE_EMBEDDED.equals(mode) && !MODE_CLUSTERED.equals(mode) && !MODE_REMOTE.equals(mode)) {
+            throw new IllegalArgumentException("load.mode must be embedded, clustered or remote, got " + mode);
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                mode,
+                System.getProperty("load.host", "localhost"),
+                Integer.getInteger("load.port", RestVerticle.PORT_LISTENER),
+                Integer.getInteger("load.rate", 1000),
+                Integer.getInteger("load.duration", 60),
+                Integer.getInteger("load.warmup", 10),
+                parseMix(System.getProperty("load.mix", DEFAULT_MIX)),
+                Integer.getInteger("load.sessions", 16),
+                Integer.getInteger("load.connections", 64),
+                Integer.getInteger("load.timeoutMs", 10000),
+                Integer.getInteger("load.restInstances", Runtime.getRuntime().availableProcessors()),
+                System.getProperty("load.username", "admin"),
+                System.getProperty("load.password", "1234"),
+                System.getProperty("load.reportFile", "target/load-test-report.json"));
+        if (options.rate < 1 || options.durationSeconds < 1 || options.warmupSeconds < 0 || options.sessions < 1
+                || options.connections < 1 || options.timeoutMs < 1 || options.restInstances < 1) {
+            throw new IllegalArgumentException("load.rate, load.duration, load.sessions, load.connections, load.timeoutMs "
+                    + "and load.restInstances must be positive, load.warmup must not be negative");
+        }
+        return options;
+    }
+
+    /**
+     * This method parses a mix like login=5,add-order=25,get-orders=70 into the weight of every operation.
+     */
+    static Map<LoadOperation, Integer> parseMix(String value) {
+        Map<LoadOperation, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("invalid load.mix entry: " + entry);
+            }
+            int weight;
+            try {
+                weight = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid load.mix weight: " + entry);
+            }
+            if (weight < 0) {
+                throw new IllegalArgumentException("invalid load.mix weight: " + entry);
+            }
+            if (weight > 0) {
+                mix.put(LoadOperation.fromName(parts[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("load.mix has no operation");
+        }
+        return mix;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public Map<LoadOperation, Integer> getMix() {
+        return mix;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public int getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public int getRestInstances() {
+        return restInstances;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    @Override
+    public String toString() {
+        return "mode= " + mode + " target= " + host + ":" + port + " rate= " + rate + "/s duration= " + durationSeconds
+                + "s warmup= " + warmupSeconds + "s mix= " + mix + " sessions= " + sessions + " connections= " + connections;
+    }
+}
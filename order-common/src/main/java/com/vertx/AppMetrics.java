@@ -0,0 +1,131 @@
+package com.vertx;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.micrometer.VertxPrometheusOptions;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the application, built on the Vert.x Micrometer metrics SPI and exposed in Prometheus text format.
+ * The meters are looked up once (when a verticle or client is created) and kept in fields, so the recording path
+ * is a plain Timer.record(long, TimeUnit) / Counter.increment() call without any allocation.
+ * When Vert.x was started without metrics, the meters are created on an empty registry and recording is a no-op.
+ */
+public final class AppMetrics {
+
+    public static final String METRICS_PORT_PROPERTY = "metrics.port";
+    public static final String METRICS_HOST_PROPERTY = "metrics.host";
+    public static final String DEFAULT_METRICS_HOST = "localhost";
+    public static final Integer DEFAULT_REST_METRICS_PORT = 9090;
+    public static final Integer DEFAULT_ORDER_METRICS_PORT = 9091;
+    public static final Long EVENT_LOOP_LAG_INTERVAL_MS = 100L;
+
+    private static final MeterRegistry noopRegistry = new CompositeMeterRegistry();
+    // the event loops whose lag is measured, with the id of their timer
+    private static final Map<Thread, Long> eventLoopLagTimers = new ConcurrentHashMap<>();
+
+    private AppMetrics() {
+    }
+
+    /**
+     * This method creates the metrics options of a Vert.x instance, with the Prometheus backend enabled.
+     * When a port is given, the metrics are also served on /metrics by an embedded HTTP server, apart from the
+     * application HTTP server: it listens on localhost unless -Dmetrics.host gives another bind address.
+     */
+    public static MicrometerMetricsOptions metricsOptions(Integer port) {
+        VertxPrometheusOptions prometheusOptions = new VertxPrometheusOptions().setEnabled(true);
+        if (port != null) {
+            prometheusOptions.setStartEmbeddedServer(true)
+                    .setEmbeddedServerOptions(new HttpServerOptions()
+                            .setHost(System.getProperty(METRICS_HOST_PROPERTY, DEFAULT_METRICS_HOST))
+                            .setPort(port))
+                    .setEmbeddedServerEndpoint("/metrics");
+        }
+        return new MicrometerMetricsOptions()
+                .setPrometheusOptions(prometheusOptions)
+                .setEnabled(true);
+    }
+
+    public static MeterRegistry registry() {
+        MeterRegistry registry = BackendRegistries.getDefaultNow();
+        return registry != null ? registry : noopRegistry;
+    }
+
+    /**
+     * @return false when Vert.x was started without metrics, so callers can skip the per request recording work
+     */
+    public static boolean isEnabled() {
+        return BackendRegistries.getDefaultNow() != null;
+    }
+
+    /**
+     * @return a latency timer that publishes a histogram, so percentiles can be aggregated across instances
+     */
+    public static Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry());
+    }
+
+    public static Counter counter(String name, String... tags) {
+        return Counter.builder(name)
+                .tags(tags)
+                .register(registry());
+    }
+
+    public static DistributionSummary bytes(String name, String... tags) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry());
+    }
+
+    /**
+     * This method measures the lag of the event loop of the calling verticle: a periodic timer is scheduled every
+     * 100ms and the delay between its expected and actual run is recorded.
+     * It must be called from the verticle start method, so the timer runs on the verticle event loop (the thread tag).
+     * Every event loop is measured by a single timer: the first verticle of an event loop starts it, the other verticle
+     * instances and shards of the same event loop share its measure.
+     * The verticle that started the timer cancels it with stopEventLoopLagMonitor() in its stop method.
+     * @return the id of the timer, -1 when the event loop is already measured by another verticle
+     */
+    public static long monitorEventLoopLag(Vertx vertx) {
+        Thread eventLoop = Thread.currentThread();
+        if (eventLoopLagTimers.putIfAbsent(eventLoop, -1L) != null) {
+            return -1;
+        }
+        Timer lag = timer("vertx.eventloop.lag", "thread", eventLoop.getName());
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(EVENT_LOOP_LAG_INTERVAL_MS);
+        long[] expected = {System.nanoTime() + intervalNanos};
+        long lagTimerId = vertx.setPeriodic(EVENT_LOOP_LAG_INTERVAL_MS, timerId -> {
+            long now = System.nanoTime();
+            lag.record(Math.max(0, now - expected[0]), TimeUnit.NANOSECONDS);
+            expected[0] = now + intervalNanos;
+        });
+        eventLoopLagTimers.put(eventLoop, lagTimerId);
+        return lagTimerId;
+    }
+
+    /**
+     * This method cancels a timer started by monitorEventLoopLag(), it must be called from the verticle stop method.
+     * The event loop is released, so the next verticle started on it measures it again.
+     */
+    public static void stopEventLoopLagMonitor(Vertx vertx, long timerId) {
+        if (timerId < 0) {
+            return;
+        }
+        vertx.cancelTimer(timerId);
+        eventLoopLagTimers.remove(Thread.currentThread(), timerId);
+    }
+}
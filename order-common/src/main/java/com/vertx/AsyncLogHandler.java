@@ -0,0 +1,114 @@
+package com.vertx;
+
+import java.io.PrintStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * java.util.logging handler that never blocks the calling thread: the records are put in a bounded queue and
+ * formatted and written to stderr by a background thread (same output as the default ConsoleHandler).
+ * When the queue is full the record is dropped, the number of dropped records is written once the queue drains.
+ * install() replaces the console handlers of the root logger; -Dlog.async=false keeps the default synchronous logging.
+ */
+public class AsyncLogHandler extends Handler {
+
+    public static final String ASYNC_PROPERTY = "log.async";
+    public static final String QUEUE_CAPACITY_PROPERTY = "log.queueCapacity";
+    public static final Integer DEFAULT_QUEUE_CAPACITY = 8192;
+
+    private static AsyncLogHandler installed;
+
+    private final BlockingQueue<LogRecord> queue;
+    private final PrintStream out = System.err;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public AsyncLogHandler(int capacity) {
+        queue = new ArrayBlockingQueue<>(capacity);
+        setFormatter(new SimpleFormatter());
+        writer = new Thread(this::writeRecords, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * This method replaces the console handlers of the root logger with an AsyncLogHandler, once per JVM.
+     * The remaining records are written when the JVM exits.
+     */
+    public static synchronized void install() {
+        if (installed != null || !Boolean.parseBoolean(System.getProperty(ASYNC_PROPERTY, "true"))) {
+            return;
+        }
+        Logger root = Logger.getLogger("");
+        for (Handler handler : root.getHandlers()) {
+            if (handler instanceof ConsoleHandler) {
+                root.removeHandler(handler);
+            }
+        }
+        installed = new AsyncLogHandler(Integer.getInteger(QUEUE_CAPACITY_PROPERTY, DEFAULT_QUEUE_CAPACITY));
+        root.addHandler(installed);
+        Runtime.getRuntime().addShutdownHook(new Thread(installed::close, "async-log-shutdown"));
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        // the messages already name their class and method, this avoids the stack walk of the source inference
+        record.setSourceClassName(record.getLoggerName());
+        record.setSourceMethodName(null);
+        if (!queue.offer(record)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+
+    /**
+     * This method stops the writer thread and writes the records still in the queue.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        LogRecord record;
+        while ((record = queue.poll()) != null) {
+            write(record);
+        }
+        flush();
+    }
+
+    private void writeRecords() {
+        while (!closed) {
+            try {
+                write(queue.take());
+                long droppedRecords = dropped.getAndSet(0);
+                if (droppedRecords > 0) {
+                    out.println("AsyncLogHandler: " + droppedRecords + " log records dropped, the log queue was full");
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void write(LogRecord record) {
+        try {
+            out.print(getFormatter().format(record));
+        } catch (RuntimeException e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.vertx;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base class of the Event Bus codecs of the order messages.
+ * Between cluster nodes the messages travel in a compact binary form: ints are written as 4 bytes and
+ * strings as their UTF-8 byte length (-1 for null) followed by the bytes.
+ * Inside a JVM the messages are immutable and are passed by reference, without any copy.
+ */
+public abstract class BinaryMessageCodec<T> implements MessageCodec<T, T> {
+
+    private final String name;
+
+    protected BinaryMessageCodec(String name) {
+        this.name = name;
+    }
+
+    protected abstract void write(Buffer buffer, T message);
+
+    protected abstract T read(Reader reader);
+
+    @Override
+    public void encodeToWire(Buffer buffer, T message) {
+        write(buffer, message);
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer) {
+        return read(new Reader(buffer, pos));
+    }
+
+    @Override
+    public T transform(T message) {
+        return message;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    protected static void writeString(Buffer buffer, String value) {
+        if (value == null) {
+            buffer.appendInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+
+    /**
+     * Sequential reader over a wire buffer.
+     */
+    protected static final class Reader {
+        private final Buffer buffer;
+        private int pos;
+
+        private Reader(Buffer buffer, int pos) {
+            this.buffer = buffer;
+            this.pos = pos;
+        }
+
+        public int readInt() {
+            int value = buffer.getInt(pos);
+            pos += 4;
+            return value;
+        }
+
+        public boolean readBoolean() {
+            return buffer.getByte(pos++) != 0;
+        }
+
+        public String readString() {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+            String value = buffer.getString(pos, pos + length, StandardCharsets.UTF_8.name());
+            pos += length;
+            return value;
+        }
+    }
+}
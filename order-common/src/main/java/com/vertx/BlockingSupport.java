@@ -0,0 +1,72 @@
+package com.vertx;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Helpers for the code that runs outside of Vert.x and blocks on it (the benchmarks, the load test and the unit tests):
+ * waiting for the result of a Vert.x callback and deleting the temporary journal directories.
+ * They must never be called from an event loop.
+ */
+public final class BlockingSupport {
+
+    public static final Long DEFAULT_TIMEOUT_SECONDS = 60L;
+
+    private BlockingSupport() {
+    }
+
+    /**
+     * This method runs an asynchronous operation and waits for its result, see await(Consumer, long).
+     */
+    public static <T> T await(Consumer<Handler<AsyncResult<T>>> operation) {
+        return await(operation, DEFAULT_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * This method runs an asynchronous operation and waits at most timeoutSeconds for its result.
+     * A failure of the operation is rethrown as an IllegalStateException whose cause is the failure.
+     */
+    public static <T> T await(Consumer<Handler<AsyncResult<T>>> operation, long timeoutSeconds) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        operation.accept(result -> {
+            if (result.succeeded()) {
+                future.complete(result.result());
+            } else {
+                future.completeExceptionally(result.cause());
+            }
+        });
+        try {
+            return future.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("no result after " + timeoutSeconds + "s", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * This method deletes a directory and everything it holds, a missing directory is ignored.
+     */
+    public static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
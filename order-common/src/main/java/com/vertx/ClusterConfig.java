@@ -0,0 +1,117 @@
+package com.vertx;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.NetworkConfig;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.eventbus.EventBusOptions;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Hazelcast cluster settings shared by the modules.
+ * The members are found over TCP-IP from the -Dcluster.members list (host or host:port, comma separated),
+ * multicast discovery is only used when no member is configured.
+ * The cluster and the Event Bus bind to the -Dcluster.host IP address, by default to the first non loopback IPv4 address of the machine.
+ * The join wait and the heartbeats are shortened, a node joins in about a second instead of the Hazelcast default of 5 seconds
+ * and a dead member is detected within 10 seconds (-Dcluster.heartbeatSeconds, -Dcluster.maxNoHeartbeatSeconds).
+ */
+public final class ClusterConfig {
+
+    private static final Logger log = Logger.getLogger(ClusterConfig.class.getPackageName());
+
+    public static final String MEMBERS_PROPERTY = "cluster.members";
+    public static final String HOST_PROPERTY = "cluster.host";
+    public static final String HEARTBEAT_SECONDS_PROPERTY = "cluster.heartbeatSeconds";
+    public static final String MAX_NO_HEARTBEAT_SECONDS_PROPERTY = "cluster.maxNoHeartbeatSeconds";
+    public static final Integer HEARTBEAT_SECONDS = 1;
+    public static final Integer MAX_NO_HEARTBEAT_SECONDS = 10;
+    public static final Integer WAIT_SECONDS_BEFORE_JOIN = 1;
+    public static final Integer MAX_WAIT_SECONDS_BEFORE_JOIN = 3;
+
+    private ClusterConfig() {
+    }
+
+    /**
+     * This method creates the options of a clustered Vert.x instance from the system properties.
+     */
+    public static VertxOptions clusteredOptions() {
+        String host = System.getProperty(HOST_PROPERTY);
+        if (host == null) {
+            host = getAddress();
+        }
+        String members = System.getProperty(MEMBERS_PROPERTY, "");
+        List<String> memberList = Arrays.stream(members.split(","))
+                .map(String::trim)
+                .filter(member -> !member.isEmpty())
+                .collect(Collectors.toList());
+        log.info("clusterConfig.clusteredOptions: cluster host= " + host + " members= " + (memberList.isEmpty() ? "multicast" : memberList));
+        return clusteredOptions(host, memberList);
+    }
+
+    /**
+     * This method creates the options of a clustered Vert.x instance bound to host.
+     * An empty member list falls back to multicast discovery.
+     */
+    public static VertxOptions clusteredOptions(String host, List<String> members) {
+        return new VertxOptions()
+                .setClusterManager(new HazelcastClusterManager(hazelcastConfig(host, members)))
+                .setEventBusOptions(new EventBusOptions().setHost(host).setClustered(true));
+    }
+
+    /**
+     * This method creates the Hazelcast configuration: TCP-IP join on the given members, bind host and tuned timings.
+     */
+    public static Config hazelcastConfig(String host, List<String> members) {
+        Config hazelcastConfig = new Config();
+        hazelcastConfig.setProperty("hazelcast.phone.home.enabled", "false");
+        hazelcastConfig.setProperty("hazelcast.wait.seconds.before.join", String.valueOf(WAIT_SECONDS_BEFORE_JOIN));
+        hazelcastConfig.setProperty("hazelcast.max.wait.seconds.before.join", String.valueOf(MAX_WAIT_SECONDS_BEFORE_JOIN));
+        hazelcastConfig.setProperty("hazelcast.heartbeat.interval.seconds",
+                String.valueOf(Integer.getInteger(HEARTBEAT_SECONDS_PROPERTY, HEARTBEAT_SECONDS)));
+        hazelcastConfig.setProperty("hazelcast.max.no.heartbeat.seconds",
+                String.valueOf(Integer.getInteger(MAX_NO_HEARTBEAT_SECONDS_PROPERTY, MAX_NO_HEARTBEAT_SECONDS)));
+
+        NetworkConfig network = hazelcastConfig.getNetworkConfig();
+        if (host != null) {
+            network.getInterfaces().setEnabled(true).addInterface(host);
+        }
+        if (!members.isEmpty()) {
+            JoinConfig join = network.getJoin();
+            join.getMulticastConfig().setEnabled(false);
+            join.getTcpIpConfig().setEnabled(true).setMembers(new ArrayList<>(members));
+        }
+        return hazelcastConfig;
+    }
+
+    /**
+     * This method will use the NetworkInterface to locate and filter the IP addresses.
+     * The first non loopback IPv4 address, outside of 10.0.0.0/8, is returned (null if there is none).
+     */
+    public static String getAddress() {
+        try {
+            log.info("clusterConfig.getAddress: going to use NetworkInterface to locate IP addresses");
+            List<NetworkInterface> networkInterfaces = new ArrayList<>();
+            NetworkInterface.getNetworkInterfaces()
+                    .asIterator().forEachRemaining(networkInterfaces::add);
+
+            return networkInterfaces.stream()
+                    .flatMap(result -> result.inetAddresses()
+                            .filter(entry -> entry.getAddress().length == 4)
+                            .filter(entry -> !entry.isLoopbackAddress())
+                            .filter(entry -> entry.getAddress()[0] != Integer.valueOf(10).byteValue())
+                            .map(InetAddress::getHostAddress))
+                    .findFirst().orElse(null);
+        } catch (SocketException e) {
+            return null;
+        }
+    }
+}
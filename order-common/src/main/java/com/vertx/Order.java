@@ -0,0 +1,52 @@
+package com.vertx;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * An order, as stored by the OrderVerticle module and sent over the Event Bus.
+ * Orders are immutable, so the local Event Bus can hand the same instance to the consumer without copying it.
+ */
+public final class Order {
+
+    private final String orderId;
+    private final String orderName;
+    private final String orderDate;
+
+    public Order(String orderId, String orderName, String orderDate) {
+        this.orderId = orderId;
+        this.orderName = orderName;
+        this.orderDate = orderDate;
+    }
+
+    /**
+     * This method creates an order from its stored JSON form (orderId, orderName, orderDate).
+     */
+    public static Order fromJson(JsonObject json) {
+        return new Order(json.getString("orderId"), json.getString("orderName"), json.getString("orderDate"));
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getOrderName() {
+        return orderName;
+    }
+
+    public String getOrderDate() {
+        return orderDate;
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.put("orderId", orderId);
+        json.put("orderName", orderName);
+        json.put("orderDate", orderDate);
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return "Order{orderId=" + orderId + ", orderName=" + orderName + ", orderDate=" + orderDate + "}";
+    }
+}
@@ -0,0 +1,20 @@
+package com.vertx;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A batch of new orders of a single shard, committed by the OrderVerticle module with a single storage write.
+ */
+public final class OrderBatch {
+
+    private final List<Order> orders;
+
+    public OrderBatch(List<Order> orders) {
+        this.orders = Collections.unmodifiableList(orders);
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+}
@@ -0,0 +1,20 @@
+package com.vertx;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The per order results of an OrderBatch, in the order of the batch.
+ */
+public final class OrderBatchResult {
+
+    private final List<OrderResult> results;
+
+    public OrderBatchResult(List<OrderResult> results) {
+        this.results = Collections.unmodifiableList(results);
+    }
+
+    public List<OrderResult> getResults() {
+        return results;
+    }
+}
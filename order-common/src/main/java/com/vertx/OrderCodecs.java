@@ -0,0 +1,201 @@
+package com.vertx;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Event Bus codecs of the Order, OrderPage, OrderResult, OrderBatch, OrderBatchResult and OrderQueryResult messages.
+ */
+public final class OrderCodecs {
+
+    public static final OrderCodec ORDER_CODEC = new OrderCodec();
+    public static final OrderPageCodec ORDER_PAGE_CODEC = new OrderPageCodec();
+    public static final OrderResultCodec ORDER_RESULT_CODEC = new OrderResultCodec();
+    public static final OrderBatchCodec ORDER_BATCH_CODEC = new OrderBatchCodec();
+    public static final OrderBatchResultCodec ORDER_BATCH_RESULT_CODEC = new OrderBatchResultCodec();
+    public static final OrderQueryResultCodec ORDER_QUERY_RESULT_CODEC = new OrderQueryResultCodec();
+
+    private OrderCodecs() {
+    }
+
+    /**
+     * This method registers the codecs as the default codecs of their message classes.
+     * Every verticle calls it on start, the codecs are registered only once per Event Bus.
+     */
+    public static synchronized void register(EventBus eventBus) {
+        try {
+            eventBus.registerDefaultCodec(Order.class, ORDER_CODEC);
+            eventBus.registerDefaultCodec(OrderPage.class, ORDER_PAGE_CODEC);
+            eventBus.registerDefaultCodec(OrderResult.class, ORDER_RESULT_CODEC);
+            eventBus.registerDefaultCodec(OrderBatch.class, ORDER_BATCH_CODEC);
+            eventBus.registerDefaultCodec(OrderBatchResult.class, ORDER_BATCH_RESULT_CODEC);
+            eventBus.registerDefaultCodec(OrderQueryResult.class, ORDER_QUERY_RESULT_CODEC);
+        } catch (IllegalStateException e) {
+            // already registered by another verticle instance of this Vert.x instance
+        }
+    }
+
+    public static void writeOrder(Buffer buffer, Order order) {
+        BinaryMessageCodec.writeString(buffer, order.getOrderId());
+        BinaryMessageCodec.writeString(buffer, order.getOrderName());
+        BinaryMessageCodec.writeString(buffer, order.getOrderDate());
+    }
+
+    public static Order readOrder(BinaryMessageCodec.Reader reader) {
+        return new Order(reader.readString(), reader.readString(), reader.readString());
+    }
+
+    public static void writeResult(Buffer buffer, OrderResult result) {
+        buffer.appendByte((byte) (result.isError() ? 1 : 0));
+        BinaryMessageCodec.writeString(buffer, result.getMessage());
+    }
+
+    public static OrderResult readResult(BinaryMessageCodec.Reader reader) {
+        return new OrderResult(reader.readBoolean(), reader.readString());
+    }
+
+    public static final class OrderCodec extends BinaryMessageCodec<Order> {
+        private OrderCodec() {
+            super("order");
+        }
+
+        @Override
+        protected void write(Buffer buffer, Order order) {
+            writeOrder(buffer, order);
+        }
+
+        @Override
+        protected Order read(Reader reader) {
+            return readOrder(reader);
+        }
+    }
+
+    public static final class OrderPageCodec extends BinaryMessageCodec<OrderPage> {
+        private OrderPageCodec() {
+            super("order-page");
+        }
+
+        @Override
+        protected void write(Buffer buffer, OrderPage page) {
+            buffer.appendInt(page.getSize());
+            buffer.appendInt(page.getOrders().size());
+            for (Order order : page.getOrders()) {
+                writeOrder(buffer, order);
+            }
+        }
+
+        @Override
+        protected OrderPage read(Reader reader) {
+            int size = reader.readInt();
+            int count = reader.readInt();
+            List<Order> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                orders.add(readOrder(reader));
+            }
+            return new OrderPage(orders, size);
+        }
+    }
+
+    public static final class OrderResultCodec extends BinaryMessageCodec<OrderResult> {
+        private OrderResultCodec() {
+            super("order-result");
+        }
+
+        @Override
+        protected void write(Buffer buffer, OrderResult result) {
+            writeResult(buffer, result);
+        }
+
+        @Override
+        protected OrderResult read(Reader reader) {
+            return readResult(reader);
+        }
+    }
+
+    public static final class OrderBatchCodec extends BinaryMessageCodec<OrderBatch> {
+        private OrderBatchCodec() {
+            super("order-batch");
+        }
+
+        @Override
+        protected void write(Buffer buffer, OrderBatch batch) {
+            buffer.appendInt(batch.getOrders().size());
+            for (Order order : batch.getOrders()) {
+                writeOrder(buffer, order);
+            }
+        }
+
+        @Override
+        protected OrderBatch read(Reader reader) {
+            int count = reader.readInt();
+            List<Order> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                orders.add(readOrder(reader));
+            }
+            return new OrderBatch(orders);
+        }
+    }
+
+    public static final class OrderBatchResultCodec extends BinaryMessageCodec<OrderBatchResult> {
+        private OrderBatchResultCodec() {
+            super("order-batch-result");
+        }
+
+        @Override
+        protected void write(Buffer buffer, OrderBatchResult batchResult) {
+            buffer.appendInt(batchResult.getResults().size());
+            for (OrderResult result : batchResult.getResults()) {
+                writeResult(buffer, result);
+            }
+        }
+
+        @Override
+        protected OrderBatchResult read(Reader reader) {
+            int count = reader.readInt();
+            List<OrderResult> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(readResult(reader));
+            }
+            return new OrderBatchResult(results);
+        }
+    }
+
+    public static final class OrderQueryResultCodec extends BinaryMessageCodec<OrderQueryResult> {
+        private OrderQueryResultCodec() {
+            super("order-query-result");
+        }
+
+        @Override
+        protected void write(Buffer buffer, OrderQueryResult result) {
+            buffer.appendInt(result.getOrders().size());
+            for (Order order : result.getOrders()) {
+                writeOrder(buffer, order);
+            }
+            buffer.appendInt(result.getCountsByDay().size());
+            for (Map.Entry<Long, Integer> dayCount : result.getCountsByDay().entrySet()) {
+                buffer.appendInt(dayCount.getKey().intValue()).appendInt(dayCount.getValue());
+            }
+        }
+
+        @Override
+        protected OrderQueryResult read(Reader reader) {
+            int count = reader.readInt();
+            List<Order> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                orders.add(readOrder(reader));
+            }
+            int days = reader.readInt();
+            SortedMap<Long, Integer> countsByDay = new TreeMap<>();
+            for (int i = 0; i < days; i++) {
+                countsByDay.put((long) reader.readInt(), reader.readInt());
+            }
+            return new OrderQueryResult(orders, countsByDay);
+        }
+    }
+}
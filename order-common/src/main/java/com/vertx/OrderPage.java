@@ -0,0 +1,26 @@
+package com.vertx;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the orders of a shard, together with the number of orders the shard held when the page was read.
+ */
+public final class OrderPage {
+
+    private final List<Order> orders;
+    private final int size;
+
+    public OrderPage(List<Order> orders, int size) {
+        this.orders = Collections.unmodifiableList(orders);
+        this.size = size;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,197 @@
+package com.vertx;
+
+import io.vertx.core.json.JsonObject;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Comparator;
+
+/**
+ * Query of the orders by a range of orderDate and/or a prefix of orderName, sent to every shard on the queryOrders address.
+ * <p>
+ * The dates are ISO dates (2023-04-03) or date-times (2023-04-03T10:15:30, with an optional offset, UTC when missing),
+ * they are compared as their epoch milliseconds (the date key); a date range is inclusive and a "to" date holds its whole day.
+ * Orders whose orderDate can't be parsed are never returned by a date range query.
+ * <p>
+ * The results are sorted by date key then orderId when a date range is given, otherwise by orderName then orderId.
+ * The names and ids are compared by code point (the order of their UTF-8 bytes), so every shard, its snapshot and the
+ * RestVerticle sort them the same way. A page starts after the last order of the previous page (the "after" order).
+ */
+public final class OrderQuery {
+
+    public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final Long fromKey;
+    private final Long toKey;
+    private final String namePrefix;
+    private final int limit;
+    private final Order after;
+
+    public OrderQuery(Long fromKey, Long toKey, String namePrefix, int limit, Order after) {
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+        this.namePrefix = namePrefix;
+        this.limit = limit;
+        this.after = after;
+    }
+
+    public static OrderQuery fromJson(JsonObject json) {
+        JsonObject after = json.getJsonObject("after");
+        return new OrderQuery(json.getLong("fromKey"), json.getLong("toKey"), json.getString("namePrefix"),
+                json.getInteger("limit", 0), after == null ? null : Order.fromJson(after));
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("fromKey", fromKey)
+                .put("toKey", toKey)
+                .put("namePrefix", namePrefix)
+                .put("limit", limit)
+                .put("after", after == null ? null : after.toJson());
+    }
+
+    /**
+     * @return the same query, for the page that starts after the given order
+     */
+    public OrderQuery after(Order order) {
+        return new OrderQuery(fromKey, toKey, namePrefix, limit, order);
+    }
+
+    /**
+     * @return true if the results are sorted by date (a date range is given), false if they are sorted by name
+     */
+    public boolean isByDate() {
+        return fromKey != null || toKey != null;
+    }
+
+    public long getFromKey() {
+        return fromKey != null ? fromKey : Long.MIN_VALUE;
+    }
+
+    public long getToKey() {
+        return toKey != null ? toKey : Long.MAX_VALUE;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Order getAfter() {
+        return after;
+    }
+
+    /**
+     * @return true if the order is in the date range and its name starts with the name prefix (when they are given)
+     */
+    public boolean matches(Order order) {
+        if (namePrefix != null && (order.getOrderName() == null || !order.getOrderName().startsWith(namePrefix))) {
+            return false;
+        }
+        if (isByDate()) {
+            Long key = dateKey(order.getOrderDate());
+            return key != null && key >= getFromKey() && key <= getToKey();
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the order comes after the "after" order of the query, in the order of the results
+     */
+    public boolean isAfterCursor(Order order) {
+        return after == null || comparator().compare(order, after) > 0;
+    }
+
+    /**
+     * @return the order of the results of this query
+     */
+    public Comparator<Order> comparator() {
+        return isByDate() ? OrderQuery::compareByDate : OrderQuery::compareByName;
+    }
+
+    /**
+     * This method parses an orderDate into its date key (epoch milliseconds, a date is the start of its day in UTC).
+     *
+     * @return the date key, or null if the date is missing or not an ISO date or date-time
+     */
+    public static Long dateKey(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            if (date.indexOf('T') < 0) {
+                return LocalDate.parse(date).toEpochDay() * MILLIS_PER_DAY;
+            }
+            TemporalAccessor parsed = DateTimeFormatter.ISO_DATE_TIME.parseBest(date, OffsetDateTime::from, LocalDateTime::from);
+            if (parsed instanceof OffsetDateTime) {
+                return ((OffsetDateTime) parsed).toInstant().toEpochMilli();
+            }
+            return ((LocalDateTime) parsed).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * This method parses the end of a date range: a date holds its whole day, a date-time is used as is.
+     */
+    public static Long dateEndKey(String date) {
+        Long key = dateKey(date);
+        if (key == null || date.indexOf('T') >= 0) {
+            return key;
+        }
+        return key + MILLIS_PER_DAY - 1;
+    }
+
+    /**
+     * @return the day (days since 1970-01-01, UTC) of a date key
+     */
+    public static long epochDay(long dateKey) {
+        return Math.floorDiv(dateKey, MILLIS_PER_DAY);
+    }
+
+    /**
+     * This method compares two strings by code point, which is also the order of their UTF-8 bytes.
+     */
+    public static int compareCodePoints(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            int firstCodePoint = first.codePointAt(i);
+            int secondCodePoint = second.codePointAt(j);
+            if (firstCodePoint != secondCodePoint) {
+                return Integer.compare(firstCodePoint, secondCodePoint);
+            }
+            i += Character.charCount(firstCodePoint);
+            j += Character.charCount(secondCodePoint);
+        }
+        return Integer.compare(first.length() - i, second.length() - j);
+    }
+
+    private static int compareByDate(Order first, Order second) {
+        Long firstKey = dateKey(first.getOrderDate());
+        Long secondKey = dateKey(second.getOrderDate());
+        int result = Long.compare(firstKey != null ? firstKey : Long.MIN_VALUE, secondKey != null ? secondKey : Long.MIN_VALUE);
+        return result != 0 ? result : compareCodePoints(first.getOrderId(), second.getOrderId());
+    }
+
+    private static int compareByName(Order first, Order second) {
+        String firstName = first.getOrderName() != null ? first.getOrderName() : "";
+        String secondName = second.getOrderName() != null ? second.getOrderName() : "";
+        int result = compareCodePoints(firstName, secondName);
+        return result != 0 ? result : compareCodePoints(first.getOrderId(), second.getOrderId());
+    }
+
+    @Override
+    public String toString() {
+        return "OrderQuery{fromKey=" + fromKey + ", toKey=" + toKey + ", namePrefix=" + namePrefix + ", limit=" + limit + "}";
+    }
+}
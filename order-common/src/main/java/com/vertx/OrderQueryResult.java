@@ -0,0 +1,28 @@
+package com.vertx;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Reply of an OrderVerticle shard to an OrderQuery: at most limit matching orders, in the order of the query,
+ * and the number of orders of the shard per day of the date range (days since 1970-01-01, empty without a date range).
+ */
+public final class OrderQueryResult {
+
+    private final List<Order> orders;
+    private final SortedMap<Long, Integer> countsByDay;
+
+    public OrderQueryResult(List<Order> orders, SortedMap<Long, Integer> countsByDay) {
+        this.orders = Collections.unmodifiableList(orders);
+        this.countsByDay = Collections.unmodifiableSortedMap(countsByDay);
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public SortedMap<Long, Integer> getCountsByDay() {
+        return countsByDay;
+    }
+}
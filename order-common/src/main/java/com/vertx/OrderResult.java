@@ -0,0 +1,41 @@
+package com.vertx;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The result of an order write, sent back by the OrderVerticle module.
+ * Its JSON form keeps the {"error": ..., "insert": ...} shape returned by the REST API.
+ */
+public final class OrderResult {
+
+    private final boolean error;
+    private final String message;
+
+    public OrderResult(boolean error, String message) {
+        this.error = error;
+        this.message = message;
+    }
+
+    public static OrderResult succeeded(String message) {
+        return new OrderResult(false, message);
+    }
+
+    public static OrderResult failed(String message) {
+        return new OrderResult(true, message);
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.put("error", String.valueOf(error));
+        json.put("insert", message);
+        return json;
+    }
+}
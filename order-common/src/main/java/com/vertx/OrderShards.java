@@ -0,0 +1,51 @@
+package com.vertx;
+
+/**
+ * Partitioning of the orders between the OrderVerticle instances.
+ * Every order belongs to exactly one shard, chosen by a hash of its orderId, and every shard is owned by a single
+ * OrderVerticle instance that consumes the shard specific Event Bus addresses.
+ * The RestVerticle and OrderVerticle modules must run with the same number of shards (-Dorder.shards).
+ */
+public final class OrderShards {
+
+    public static final String SHARDS_PROPERTY = "order.shards";
+    public static final Integer DEFAULT_SHARDS = 4;
+
+    public static final String ADD_ORDER_ADDRESS = "addOrder";
+    public static final String ADD_ORDERS_ADDRESS = "addOrders";
+    public static final String GET_ORDER_ADDRESS = "getOrder";
+    public static final String GET_ORDERS_ADDRESS = "getOrders";
+    public static final String GET_VERSION_ADDRESS = "getVersion";
+    public static final String QUERY_ORDERS_ADDRESS = "queryOrders";
+
+    /**
+     * Reply header of the OrderVerticle instances: the number of orders of the shard waiting for their journal commit.
+     */
+    public static final String QUEUE_DEPTH_HEADER = "queueDepth";
+
+    private OrderShards() {
+    }
+
+    /**
+     * @return the number of shards configured for this JVM
+     */
+    public static int count() {
+        return Integer.getInteger(SHARDS_PROPERTY, DEFAULT_SHARDS);
+    }
+
+    /**
+     * String.hashCode() is specified by the JLS, so every JVM of the cluster maps an orderId to the same shard.
+     *
+     * @return the shard that owns the given orderId
+     */
+    public static int shardOf(String orderId, int shards) {
+        return orderId == null ? 0 : Math.floorMod(orderId.hashCode(), shards);
+    }
+
+    /**
+     * @return the Event Bus address of the given shard, e.g. addOrder.shard-3
+     */
+    public static String address(String baseAddress, int shard) {
+        return baseAddress + ".shard-" + shard;
+    }
+}
@@ -0,0 +1,154 @@
+package com.vertx;
+
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Correlation of the logs of one HTTP request across the RestVerticle and OrderVerticle modules.
+ * The RestVerticle starts a trace per HTTP request (reusing a valid incoming X-Request-Id header) and sends its
+ * request id and sampling decision as Event Bus headers, so the OrderVerticle logs of the request carry the same id.
+ * <p>
+ * The per request logs are written at FINE, so with the default INFO level they cost one isLoggable() check and
+ * no string is built. A sampled request (-Dlog.sampleRate, 0 by default) is logged at INFO on every node,
+ * which traces a fraction of the traffic end to end without logging every request.
+ * A constant message can be passed to log() as is, a message that is built (concatenated) must be guarded
+ * by isLoggable() so nothing is allocated when the log is disabled.
+ * An Event Bus consumer checks and logs through the static isLoggable(Logger, Message) and log(Logger, Message, String),
+ * so the trace of a message is only created when its log is written.
+ * A failure is logged at its own level (log(Logger, Level, String)), so it is written even when the request is not traced.
+ */
+public final class RequestTrace {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String SAMPLED_HEADER = "X-Trace-Sampled";
+    public static final String SAMPLE_RATE_PROPERTY = "log.sampleRate";
+    public static final Integer MAX_REQUEST_ID_LENGTH = 64;
+
+    /**
+     * Trace of the work that does not belong to a traced request, e.g. a message sent without trace headers.
+     */
+    public static final RequestTrace NONE = new RequestTrace("-", false);
+
+    private static final double sampleRate = Double.parseDouble(System.getProperty(SAMPLE_RATE_PROPERTY, "0"));
+    private static final String idPrefix = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36) + "-";
+    private static final AtomicLong idSequence = new AtomicLong();
+
+    private final String requestId;
+    private final boolean sampled;
+
+    private RequestTrace(String requestId, boolean sampled) {
+        this.requestId = requestId;
+        this.sampled = sampled;
+    }
+
+    /**
+     * This method starts the trace of an HTTP request.
+     * The incoming request id is kept when it is short and made of safe characters, otherwise a new one is generated.
+     */
+    public static RequestTrace start(String incomingRequestId) {
+        String requestId = isValidRequestId(incomingRequestId)
+                ? incomingRequestId
+                : idPrefix + Long.toString(idSequence.incrementAndGet(), 36);
+        return new RequestTrace(requestId, sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * @return the trace sent with an Event Bus message, or NONE when the message has no trace headers
+     */
+    public static RequestTrace of(Message<?> message) {
+        String requestId = message.headers().get(REQUEST_ID_HEADER);
+        if (requestId == null) {
+            return NONE;
+        }
+        return new RequestTrace(requestId, message.headers().contains(SAMPLED_HEADER));
+    }
+
+    /**
+     * @return true if a log of the request of an Event Bus message would be written by the given logger,
+     * without creating the trace of the message
+     */
+    public static boolean isLoggable(Logger log, Message<?> message) {
+        return log.isLoggable(Level.FINE) || (log.isLoggable(Level.INFO) && message.headers().contains(SAMPLED_HEADER));
+    }
+
+    /**
+     * This method logs a message of the request of an Event Bus message, the trace of the message is only created
+     * when the log is written.
+     */
+    public static void log(Logger log, Message<?> message, String text) {
+        if (isLoggable(log, message)) {
+            of(message).log(log, text);
+        }
+    }
+
+    /**
+     * This method adds the trace headers to the options of an Event Bus message.
+     */
+    public DeliveryOptions addHeaders(DeliveryOptions options) {
+        if (this == NONE) {
+            return options;
+        }
+        options.addHeader(REQUEST_ID_HEADER, requestId);
+        if (sampled) {
+            options.addHeader(SAMPLED_HEADER, "1");
+        }
+        return options;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * @return true if a log of this request would be written by the given logger
+     */
+    public boolean isLoggable(Logger log) {
+        return log.isLoggable(level());
+    }
+
+    /**
+     * This method logs a message of this request prefixed with its request id, when the level of the request is enabled.
+     */
+    public void log(Logger log, String message) {
+        Level level = level();
+        if (log.isLoggable(level)) {
+            log.log(level, "[" + requestId + "] " + message);
+        }
+    }
+
+    /**
+     * This method logs a message of this request at the given level, or at the level of the request when it is higher.
+     */
+    public void log(Logger log, Level level, String message) {
+        Level logLevel = level.intValue() >= level().intValue() ? level : level();
+        if (log.isLoggable(logLevel)) {
+            log.log(logLevel, "[" + requestId + "] " + message);
+        }
+    }
+
+    private Level level() {
+        return sampled ? Level.INFO : Level.FINE;
+    }
+
+    private static boolean isValidRequestId(String requestId) {
+        if (requestId == null || requestId.isEmpty() || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < requestId.length(); i++) {
+            char c = requestId.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+package com.vertx;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppMetricsTest {
+
+    private Vertx vertx;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        BlockingSupport.<Void>await(vertx::close);
+    }
+
+    @Test
+    void everyEventLoopIsMeasuredByASingleTimer() {
+        LagVerticle first = deploy(vertx);
+        LagVerticle second = deploy(vertx);
+
+        assertEquals(first.thread, second.thread);
+        assertTrue(first.timerId >= 0);
+        assertEquals(-1, second.timerId);
+    }
+
+    @Test
+    void eventLoopsOfAnotherVertxInstanceAreMeasured() {
+        Vertx otherVertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(1));
+        try {
+            LagVerticle first = deploy(vertx);
+            LagVerticle other = deploy(otherVertx);
+
+            // the two event loops have the same thread name, each one has its own timer
+            assertEquals(first.thread, other.thread);
+            assertTrue(first.timerId >= 0);
+            assertTrue(other.timerId >= 0);
+        } finally {
+            BlockingSupport.<Void>await(otherVertx::close);
+        }
+    }
+
+    @Test
+    void stoppedVerticleReleasesItsEventLoop() {
+        LagVerticle first = deploy(vertx);
+        deploy(vertx);
+        BlockingSupport.<Void>await(handler -> vertx.undeploy(first.deploymentID(), handler));
+
+        LagVerticle next = deploy(vertx);
+
+        assertEquals(first.thread, next.thread);
+        assertTrue(next.timerId >= 0);
+        assertTrue(vertx.cancelTimer(next.timerId));
+        assertFalse(vertx.cancelTimer(first.timerId), "the timer of the stopped verticle is cancelled");
+    }
+
+    private static LagVerticle deploy(Vertx vertx) {
+        LagVerticle verticle = new LagVerticle();
+        BlockingSupport.<String>await(handler -> vertx.deployVerticle(verticle, new DeploymentOptions(), handler));
+        return verticle;
+    }
+
+    private static final class LagVerticle extends AbstractVerticle {
+        private volatile long timerId;
+        private volatile String thread;
+
+        @Override
+        public void start() {
+            thread = Thread.currentThread().getName();
+            timerId = AppMetrics.monitorEventLoopLag(vertx);
+        }
+
+        @Override
+        public void stop() {
+            AppMetrics.stopEventLoopLagMonitor(vertx, timerId);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.vertx;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every message goes through encodeToWire and decodeFromWire, like between two cluster nodes.
+ * The message is written after a prefix, as the Event Bus writes it after its own header, and is followed by other bytes.
+ */
+class OrderCodecsTest {
+
+    private static final Order ORDER = new Order("order-1", "first order", "2020-05-17");
+    private static final Order NULL_FIELDS_ORDER = new Order(null, null, null);
+    private static final Order NON_ASCII_ORDER = new Order("commande-ü", "Crème brûlée 注文 🍰", "2021-12-31");
+
+    @Test
+    void orderRoundTrip() {
+        assertOrder(ORDER, roundTrip(OrderCodecs.ORDER_CODEC, ORDER));
+        assertOrder(NON_ASCII_ORDER, roundTrip(OrderCodecs.ORDER_CODEC, NON_ASCII_ORDER));
+    }
+
+    @Test
+    void orderWithNullFieldsRoundTrip() {
+        Order decoded = roundTrip(OrderCodecs.ORDER_CODEC, NULL_FIELDS_ORDER);
+
+        assertNull(decoded.getOrderId());
+        assertNull(decoded.getOrderName());
+        assertNull(decoded.getOrderDate());
+    }
+
+    @Test
+    void orderWithEmptyFieldsRoundTrip() {
+        assertOrder(new Order("", "", ""), roundTrip(OrderCodecs.ORDER_CODEC, new Order("", "", "")));
+    }
+
+    @Test
+    void orderPageRoundTrip() {
+        OrderPage decoded = roundTrip(OrderCodecs.ORDER_PAGE_CODEC, new OrderPage(List.of(ORDER, NULL_FIELDS_ORDER, NON_ASCII_ORDER), 42));
+
+        assertEquals(42, decoded.getSize());
+        assertOrders(List.of(ORDER, NULL_FIELDS_ORDER, NON_ASCII_ORDER), decoded.getOrders());
+    }
+
+    @Test
+    void emptyOrderPageRoundTrip() {
+        OrderPage decoded = roundTrip(OrderCodecs.ORDER_PAGE_CODEC, new OrderPage(List.of(), 0));
+
+        assertEquals(0, decoded.getSize());
+        assertTrue(decoded.getOrders().isEmpty());
+    }
+
+    @Test
+    void orderResultRoundTrip() {
+        OrderResult succeeded = roundTrip(OrderCodecs.ORDER_RESULT_CODEC, OrderResult.succeeded("order added"));
+        OrderResult failed = roundTrip(OrderCodecs.ORDER_RESULT_CODEC, OrderResult.failed("la commande existe déjà"));
+        OrderResult withoutMessage = roundTrip(OrderCodecs.ORDER_RESULT_CODEC, new OrderResult(true, null));
+
+        assertFalse(succeeded.isError());
+        assertEquals("order added", succeeded.getMessage());
+        assertTrue(failed.isError());
+        assertEquals("la commande existe déjà", failed.getMessage());
+        assertTrue(withoutMessage.isError());
+        assertNull(withoutMessage.getMessage());
+    }
+
+    @Test
+    void orderBatchRoundTrip() {
+        OrderBatch decoded = roundTrip(OrderCodecs.ORDER_BATCH_CODEC, new OrderBatch(List.of(ORDER, NULL_FIELDS_ORDER, NON_ASCII_ORDER)));
+
+        assertOrders(List.of(ORDER, NULL_FIELDS_ORDER, NON_ASCII_ORDER), decoded.getOrders());
+        assertTrue(roundTrip(OrderCodecs.ORDER_BATCH_CODEC, new OrderBatch(List.of())).getOrders().isEmpty());
+    }
+
+    @Test
+    void orderBatchResultRoundTrip() {
+        List<OrderResult> results = List.of(OrderResult.succeeded("order added"), OrderResult.failed("überfällig"), new OrderResult(false, null));
+
+        OrderBatchResult decoded = roundTrip(OrderCodecs.ORDER_BATCH_RESULT_CODEC, new OrderBatchResult(results));
+
+        assertEquals(results.size(), decoded.getResults().size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(results.get(i).isError(), decoded.getResults().get(i).isError());
+            assertEquals(results.get(i).getMessage(), decoded.getResults().get(i).getMessage());
+        }
+    }
+
+    @Test
+    void orderQueryResultRoundTrip() {
+        SortedMap<Long, Integer> countsByDay = new TreeMap<>();
+        countsByDay.put(-1L, 3);
+        countsByDay.put(0L, 1);
+        countsByDay.put(18_400L, 250);
+
+        OrderQueryResult decoded = roundTrip(OrderCodecs.ORDER_QUERY_RESULT_CODEC, new OrderQueryResult(List.of(NON_ASCII_ORDER, NULL_FIELDS_ORDER), countsByDay));
+
+        assertOrders(List.of(NON_ASCII_ORDER, NULL_FIELDS_ORDER), decoded.getOrders());
+        assertEquals(countsByDay, decoded.getCountsByDay());
+    }
+
+    @Test
+    void emptyOrderQueryResultRoundTrip() {
+        OrderQueryResult decoded = roundTrip(OrderCodecs.ORDER_QUERY_RESULT_CODEC, new OrderQueryResult(List.of(), new TreeMap<>()));
+
+        assertTrue(decoded.getOrders().isEmpty());
+        assertTrue(decoded.getCountsByDay().isEmpty());
+    }
+
+    /**
+     * This method encodes the message after a few header bytes and before a few trailing bytes,
+     * then decodes it from the position where it starts.
+     */
+    private static <T> T roundTrip(BinaryMessageCodec<T> codec, T message) {
+        Buffer buffer = Buffer.buffer().appendInt(0xCAFEBABE).appendByte((byte) 7).appendString("header");
+        int pos = buffer.length();
+        codec.encodeToWire(buffer, message);
+        buffer.appendInt(-1).appendString("trailer");
+        return codec.decodeFromWire(pos, buffer);
+    }
+
+    private static void assertOrders(List<Order> expected, List<Order> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertOrder(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static void assertOrder(Order expected, Order actual) {
+        assertEquals(expected.getOrderId(), actual.getOrderId());
+        assertEquals(expected.getOrderName(), actual.getOrderName());
+        assertEquals(expected.getOrderDate(), actual.getOrderDate());
+    }
+}
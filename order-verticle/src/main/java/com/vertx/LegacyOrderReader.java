@@ -0,0 +1,146 @@
+package com.vertx;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader of the orders saved by previous versions in a local JSON file (an array of orders).
+ * The file is parsed one order at a time, so it is never loaded in memory as a whole.
+ * Only the orders of the given shard are returned. The reader keeps no state per order: an orderId found more than once
+ * is returned each time and is deduplicated by the snapshot that the orders are written to.
+ * An element of the array that is not an order object fails the reader with an UncheckedIOException.
+ * The reader closes the file once the last order was read, it must be closed explicitly when it is not read to the end.
+ */
+public class LegacyOrderReader implements Iterator<Order>, Closeable {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final JsonParser parser;
+    private final int shard;
+    private final int shards;
+    private Order next;
+    private boolean closed;
+
+    private LegacyOrderReader(JsonParser parser, int shard, int shards) {
+        this.parser = parser;
+        this.shard = shard;
+        this.shards = shards;
+    }
+
+    /**
+     * This method opens the orders file, as a local file or else as a classpath resource.
+     *
+     * @return the reader, or null if the file does not exist
+     */
+    public static LegacyOrderReader open(String fileName, int shard, int shards) throws IOException {
+        Path file = Paths.get(fileName);
+        InputStream input = Files.exists(file)
+                ? Files.newInputStream(file)
+                : LegacyOrderReader.class.getClassLoader().getResourceAsStream(fileName);
+        if (input == null) {
+            return null;
+        }
+        JsonParser parser = jsonFactory.createParser(input);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new IOException("orders file " + fileName + " is not a JSON array");
+        }
+        return new LegacyOrderReader(parser, shard, shards);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !closed) {
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Order next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Order order = next;
+        next = null;
+        return order;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Order readNext() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+            Order order = readOrder();
+            if (order.getOrderId() != null && OrderShards.shardOf(order.getOrderId(), shards) == shard) {
+                return order;
+            }
+        }
+        if (token != JsonToken.END_ARRAY) {
+            String location = " at line " + parser.getCurrentLocation().getLineNr();
+            close();
+            throw new IOException("orders file element is not an order object" + location + ", found " + token);
+        }
+        close();
+        return null;
+    }
+
+    /**
+     * The orders of the old file format use "orderID", the journal format uses "orderId", both are accepted.
+     */
+    private Order readOrder() throws IOException {
+        String orderId = null;
+        String orderName = null;
+        String orderDate = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            String text = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+            switch (field) {
+                case "orderID":
+                case "orderId":
+                    orderId = text;
+                    break;
+                case "orderName":
+                    orderName = text;
+                    break;
+                case "orderDate":
+                    orderDate = text;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return new Order(orderId, orderName, orderDate);
+    }
+}
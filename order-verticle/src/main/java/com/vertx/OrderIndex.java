@@ -0,0 +1,133 @@
+package com.vertx;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Sorted secondary indexes of the orders added since the latest snapshot (the snapshot has its own sorted sections):
+ * orders by date key then orderId, orders by orderName then orderId, and the number of orders per day.
+ * The indexes are updated on every added order, so a query only reads the entries of its results.
+ * The index is not thread safe, it must only be used from the event loop of its verticle.
+ */
+public class OrderIndex {
+
+    private static final Comparator<IndexKey> DATE_ORDER = Comparator
+            .comparingLong((IndexKey key) -> key.dateKey)
+            .thenComparing(IndexKey::compareOrderIds);
+    private static final Comparator<IndexKey> NAME_ORDER = ((Comparator<IndexKey>) (first, second) ->
+            OrderQuery.compareCodePoints(first.orderName, second.orderName))
+            .thenComparing(IndexKey::compareOrderIds);
+
+    private final NavigableMap<IndexKey, Order> ordersByDate = new TreeMap<>(DATE_ORDER);
+    private final NavigableMap<IndexKey, Order> ordersByName = new TreeMap<>(NAME_ORDER);
+    private final NavigableMap<Long, Integer> countsByDay = new TreeMap<>();
+
+    public void add(Order order) {
+        Long dateKey = OrderQuery.dateKey(order.getOrderDate());
+        if (dateKey != null) {
+            ordersByDate.put(IndexKey.ofDate(dateKey, order.getOrderId()), order);
+            countsByDay.merge(OrderQuery.epochDay(dateKey), 1, Integer::sum);
+        }
+        if (order.getOrderName() != null) {
+            ordersByName.put(IndexKey.ofName(order.getOrderName(), order.getOrderId()), order);
+        }
+    }
+
+    public void remove(Order order) {
+        Long dateKey = OrderQuery.dateKey(order.getOrderDate());
+        if (dateKey != null && ordersByDate.remove(IndexKey.ofDate(dateKey, order.getOrderId())) != null) {
+            countsByDay.computeIfPresent(OrderQuery.epochDay(dateKey), (day, count) -> count > 1 ? count - 1 : null);
+        }
+        if (order.getOrderName() != null) {
+            ordersByName.remove(IndexKey.ofName(order.getOrderName(), order.getOrderId()));
+        }
+    }
+
+    /**
+     * @return the orders by date, starting after (dateKey, orderId), or at it when inclusive (a null orderId comes first)
+     */
+    public Iterator<Order> ordersByDate(long dateKey, String orderId, boolean inclusive) {
+        return ordersByDate.tailMap(IndexKey.ofDate(dateKey, orderId), inclusive).values().iterator();
+    }
+
+    /**
+     * @return the orders by name, starting after (orderName, orderId), or at it when inclusive (a null orderId comes first)
+     */
+    public Iterator<Order> ordersByName(String orderName, String orderId, boolean inclusive) {
+        return ordersByName.tailMap(IndexKey.ofName(orderName, orderId), inclusive).values().iterator();
+    }
+
+    /**
+     * This method counts the orders whose name starts with the prefix, they are the index entries between the prefix and
+     * the first name after every name that starts with it. The entries are walked (a TreeMap has no rank), the walk
+     * stops at max, which is enough for a caller that compares the count with another one.
+     *
+     * @return the number of orders whose name starts with the prefix, or max if there are more
+     */
+    public long countByNamePrefix(String prefix, long max) {
+        String prefixEnd = prefixEnd(prefix);
+        NavigableMap<IndexKey, Order> range = prefixEnd == null
+                ? ordersByName.tailMap(IndexKey.ofName(prefix, null), true)
+                : ordersByName.subMap(IndexKey.ofName(prefix, null), true, IndexKey.ofName(prefixEnd, null), false);
+        long count = 0;
+        for (Iterator<IndexKey> keys = range.keySet().iterator(); count < max && keys.hasNext(); keys.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of orders per day, for the days between fromDay and toDay (inclusive)
+     */
+    public NavigableMap<Long, Integer> countsByDay(long fromDay, long toDay) {
+        return countsByDay.subMap(fromDay, true, toDay, true);
+    }
+
+    /**
+     * @return the first string after every string that starts with the prefix (in code point order),
+     * or null if there is none (the prefix is empty or only made of the last code point)
+     */
+    static String prefixEnd(String prefix) {
+        int end = prefix.length();
+        while (end > 0) {
+            int codePoint = prefix.codePointBefore(end);
+            end -= Character.charCount(codePoint);
+            if (codePoint < Character.MAX_CODE_POINT) {
+                return new StringBuilder(prefix.length()).append(prefix, 0, end).appendCodePoint(codePoint + 1).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Key of the sorted indexes, a null orderId is before every orderId (it is only used to search the indexes).
+     */
+    private static final class IndexKey {
+        private final long dateKey;
+        private final String orderName;
+        private final String orderId;
+
+        private IndexKey(long dateKey, String orderName, String orderId) {
+            this.dateKey = dateKey;
+            this.orderName = orderName;
+            this.orderId = orderId;
+        }
+
+        private static IndexKey ofDate(long dateKey, String orderId) {
+            return new IndexKey(dateKey, null, orderId);
+        }
+
+        private static IndexKey ofName(String orderName, String orderId) {
+            return new IndexKey(0, orderName, orderId);
+        }
+
+        private static int compareOrderIds(IndexKey first, IndexKey second) {
+            if (first.orderId == null || second.orderId == null) {
+                return Boolean.compare(first.orderId != null, second.orderId != null);
+            }
+            return OrderQuery.compareCodePoints(first.orderId, second.orderId);
+        }
+    }
+}
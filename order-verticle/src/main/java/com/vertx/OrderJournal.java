@@ -0,0 +1,377 @@
+package com.vertx;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented log of orders.
+ * Every record is written as [length][crc32][json payload], segments are rolled once they reach the configured size.
+ * Appends that arrive within the group commit window are written together and share a single fsync,
+ * the append handlers are called only once their data is durable.
+ * Segments can be rolled on demand, so that a snapshot can cover all the segments before the new one.
+ * A failed write or fsync fails the journal permanently: the kernel may already have dropped the dirty pages of the
+ * segment, so a later fsync that succeeds on the same file does not prove that the earlier data is durable.
+ * Every later append and roll fails until the journal is opened again (the shard is restarted).
+ * All the methods of this class must be called from the event loop of the verticle that owns the journal.
+ */
+public class OrderJournal {
+
+    private static final Logger log = Logger.getLogger(OrderJournal.class.getPackageName());
+
+    public static final String SEGMENT_PREFIX = "segment-";
+    public static final String SEGMENT_SUFFIX = ".log";
+    public static final int RECORD_HEADER_BYTES = 8;
+    public static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+    private final Vertx vertx;
+    private final Path directory;
+    private final long groupCommitWindowMs;
+    private final long segmentMaxBytes;
+
+    private final List<PendingWrite> pendingWrites = new ArrayList<>();
+    private boolean commitScheduled;
+    private boolean commitInFlight;
+    private Throwable failure;
+
+    private FileChannel channel;
+    private long segmentId;
+    private long segmentSize;
+
+    private final Timer writeTimer;
+    private final DistributionSummary writeBytes;
+    private final Timer replayTimer;
+    private final DistributionSummary replayBytes;
+
+    public OrderJournal(Vertx vertx, String directory, long groupCommitWindowMs, long segmentMaxBytes, String shard) {
+        this.vertx = vertx;
+        this.directory = Paths.get(directory);
+        this.groupCommitWindowMs = groupCommitWindowMs;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.writeTimer = AppMetrics.timer("order.journal.write", "shard", shard);
+        this.writeBytes = AppMetrics.bytes("order.journal.write.bytes", "shard", shard);
+        this.replayTimer = AppMetrics.timer("order.journal.replay", "shard", shard);
+        this.replayBytes = AppMetrics.bytes("order.journal.replay.bytes", "shard", shard);
+    }
+
+    /**
+     * This method opens the journal and replays in order every segment from firstSegment on.
+     * The segments before firstSegment are already contained in a snapshot (see OrderSnapshot), they are deleted.
+     * A torn record at the tail of the last segment (crash in the middle of a write) is truncated.
+     * The handler receives all the orders that were found in the replayed segments.
+     */
+    public void open(long firstSegment, Handler<AsyncResult<List<Order>>> handler) {
+        log.info("orderJournal.open: going to replay journal from= " + directory + " first segment= " + firstSegment);
+        vertx.<List<Order>>executeBlocking(promise -> {
+            try {
+                long start = System.nanoTime();
+                Files.createDirectories(directory);
+                List<Path> segments = new ArrayList<>();
+                for (Path segment : listSegments()) {
+                    if (segmentIdOf(segment) < firstSegment) {
+                        Files.deleteIfExists(segment);
+                    } else {
+                        segments.add(segment);
+                    }
+                }
+                List<Order> orders = new ArrayList<>();
+                for (int i = 0; i < segments.size(); i++) {
+                    replayBytes.record(replaySegment(segments.get(i), orders, i == segments.size() - 1));
+                }
+                replayTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                segmentId = segments.isEmpty() ? Math.max(firstSegment, 1) : segmentIdOf(segments.get(segments.size() - 1));
+                openSegment(segmentId);
+                promise.complete(orders);
+            } catch (IOException e) {
+                promise.fail(e);
+            }
+        }, true, result -> {
+            if (result.succeeded()) {
+                log.info("orderJournal.open: replay done, orders found= " + result.result().size());
+            }
+            handler.handle(result);
+        });
+    }
+
+    /**
+     * This method appends a single order to the journal, see appendAll(List, Handler).
+     */
+    public void append(Order order, Handler<AsyncResult<Void>> handler) {
+        appendAll(List.of(order), handler);
+    }
+
+    /**
+     * This method appends orders to the journal.
+     * The orders are written with the next group commit, the handler is called once they were written and fsync-ed.
+     */
+    public void appendAll(List<Order> orders, Handler<AsyncResult<Void>> handler) {
+        if (failure != null) {
+            handler.handle(failedJournal());
+            return;
+        }
+        Buffer records = Buffer.buffer();
+        for (Order order : orders) {
+            Buffer payload = order.toJson().toBuffer();
+            if (payload.length() > MAX_RECORD_BYTES) {
+                handler.handle(Future.failedFuture("order record is too large"));
+                return;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload.getBytes());
+            records.appendInt(payload.length()).appendInt((int) crc.getValue()).appendBuffer(payload);
+        }
+        pendingWrites.add(new PendingWrite(records, handler));
+        scheduleCommit();
+    }
+
+    /**
+     * This method closes the current segment and starts a new one, the handler receives the id of the new segment.
+     * The roll is ordered with the group commits: every append acknowledged before the handler is called
+     * is in a segment before the new one, every later append is in the new segment or after it.
+     */
+    public void rollSegment(Handler<AsyncResult<Long>> handler) {
+        if (failure != null) {
+            handler.handle(failedJournal());
+            return;
+        }
+        vertx.<Long>executeBlocking(promise -> {
+            try {
+                channel.force(false);
+                channel.close();
+                openSegment(segmentId + 1);
+                promise.complete(segmentId);
+            } catch (IOException e) {
+                promise.fail(e);
+            }
+        }, true, result -> {
+            if (result.failed()) {
+                log.severe("orderJournal.rollSegment: roll failed, the journal is failed until restart, cause: " + result.cause());
+                failure = result.cause();
+            }
+            handler.handle(result);
+        });
+    }
+
+    /**
+     * This method deletes the segments before the given segment, once their orders were saved in a snapshot.
+     */
+    public void deleteSegmentsBefore(long firstSegment, Handler<AsyncResult<Void>> handler) {
+        vertx.<Void>executeBlocking(promise -> {
+            try {
+                for (Path segment : listSegments()) {
+                    if (segmentIdOf(segment) < firstSegment) {
+                        Files.deleteIfExists(segment);
+                    }
+                }
+                promise.complete();
+            } catch (IOException e) {
+                promise.fail(e);
+            }
+        }, true, handler);
+    }
+
+    /**
+     * This method forces and closes the current segment.
+     * It should be called once no more appends are expected, appends that still wait for a group commit are not written.
+     */
+    public void close(Handler<AsyncResult<Void>> handler) {
+        vertx.<Void>executeBlocking(promise -> {
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                    channel.close();
+                }
+                promise.complete();
+            } catch (IOException e) {
+                promise.fail(e);
+            }
+        }, true, handler);
+    }
+
+    /**
+     * The first append after an idle period waits for the group commit window so that concurrent appends share one fsync.
+     * Appends that arrive while a commit is in flight are committed right after it completes.
+     */
+    private void scheduleCommit() {
+        if (commitScheduled || commitInFlight) {
+            return;
+        }
+        commitScheduled = true;
+        if (groupCommitWindowMs > 0) {
+            vertx.setTimer(groupCommitWindowMs, timerId -> commit());
+        } else {
+            vertx.runOnContext(v -> commit());
+        }
+    }
+
+    private void commit() {
+        commitScheduled = false;
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        List<PendingWrite> batch = new ArrayList<>(pendingWrites);
+        pendingWrites.clear();
+        commitInFlight = true;
+
+        Buffer records = Buffer.buffer();
+        batch.forEach(write -> records.appendBuffer(write.records));
+
+        vertx.<Void>executeBlocking(promise -> {
+            try {
+                write(records);
+                promise.complete();
+            } catch (IOException e) {
+                promise.fail(e);
+            }
+        }, true, result -> {
+            commitInFlight = false;
+            if (result.failed()) {
+                log.severe("orderJournal.commit: group commit failed, the journal is failed until restart, cause: " + result.cause());
+                failure = result.cause();
+                batch.forEach(write -> write.handler.handle(result));
+                List<PendingWrite> waiting = new ArrayList<>(pendingWrites);
+                pendingWrites.clear();
+                waiting.forEach(write -> write.handler.handle(failedJournal()));
+                return;
+            }
+            batch.forEach(write -> write.handler.handle(result));
+            if (!pendingWrites.isEmpty()) {
+                commitScheduled = true;
+                commit();
+            }
+        });
+    }
+
+    private void write(Buffer records) throws IOException {
+        long start = System.nanoTime();
+        if (segmentSize > 0 && segmentSize + records.length() > segmentMaxBytes) {
+            channel.force(false);
+            channel.close();
+            openSegment(segmentId + 1);
+        }
+        ByteBuffer byteBuffer = ByteBuffer.wrap(records.getBytes());
+        try {
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // drop the partial batch, so a replay does not stop at a torn record before the end of the segment
+            try {
+                channel.truncate(segmentSize);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        segmentSize += records.length();
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        writeBytes.record(records.length());
+    }
+
+    private <T> Future<T> failedJournal() {
+        return Future.failedFuture(new IOException("order journal failed on an earlier write, it must be reopened", failure));
+    }
+
+    private void openSegment(long id) throws IOException {
+        segmentId = id;
+        channel = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = channel.size();
+    }
+
+    private long replaySegment(Path segment, List<Order> orders, boolean lastSegment) throws IOException {
+        try (FileChannel segmentChannel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = segmentChannel.size();
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            long position = 0;
+            while (position < size) {
+                header.clear();
+                if (!readFully(segmentChannel, header, position)) {
+                    break;
+                }
+                int length = header.getInt(0);
+                int checksum = header.getInt(4);
+                if (length < 0 || length > MAX_RECORD_BYTES || position + RECORD_HEADER_BYTES + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(segmentChannel, payload, position + RECORD_HEADER_BYTES);
+                CRC32 crc = new CRC32();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                orders.add(Order.fromJson(new JsonObject(Buffer.buffer(payload.array()))));
+                position += RECORD_HEADER_BYTES + length;
+            }
+            if (position < size) {
+                if (!lastSegment) {
+                    throw new IOException("corrupted journal segment " + segment + " at position " + position);
+                }
+                log.info("orderJournal.replaySegment: truncating torn tail of " + segment + " at position " + position);
+                segmentChannel.truncate(position);
+                segmentChannel.force(true);
+            }
+            return position;
+        }
+    }
+
+    private static boolean readFully(FileChannel fileChannel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = fileChannel.read(target, position + target.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((first, second) -> Long.compare(segmentIdOf(first), segmentIdOf(second)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentIdOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class PendingWrite {
+        private final Buffer records;
+        private final Handler<AsyncResult<Void>> handler;
+
+        private PendingWrite(Buffer records, Handler<AsyncResult<Void>> handler) {
+            this.records = records;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.vertx;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+
+public class OrderMain {
+
+    private static final Logger log = Logger.getLogger(OrderMain.class.getPackageName());
+
+    /**
+     * To run the application in a cluster mode, the main class will use Vert.x implementation of Hazelcast as a cluster manager.
+     * The hazelcast configuration and the cluster address are created by ClusterConfig (-Dcluster.members, -Dcluster.host).
+     * One OrderVerticle instance is deployed per shard (-Dorder.shards), each one is the single writer of its shard.
+     * The metrics are exposed on http://localhost:9091/metrics (-Dmetrics.port and -Dmetrics.host override it).
+     * The logs are written by an AsyncLogHandler, so the event loops never wait for the console.
+     * The time to join the cluster and to deploy the shards is logged.
+     */
+    public static void main(String[] args) {
+        AsyncLogHandler.install();
+        long startTime = System.nanoTime();
+        log.info("OrderVerticle Module= main.main: going to create the cluster options");
+        Integer metricsPort = Integer.getInteger(AppMetrics.METRICS_PORT_PROPERTY, AppMetrics.DEFAULT_ORDER_METRICS_PORT);
+        VertxOptions options = ClusterConfig.clusteredOptions().setMetricsOptions(AppMetrics.metricsOptions(metricsPort));
+
+        Vertx.clusteredVertx(options, result -> {
+            if (result.failed()) {
+                log.info("OrderVerticle Module= main.main: can't join the cluster, cause: " + result.cause());
+                return;
+            }
+            long clusterTime = System.nanoTime();
+            log.info("OrderVerticle Module= main.main: cluster joined, ms= " + TimeUnit.NANOSECONDS.toMillis(clusterTime - startTime));
+            log.info("OrderVerticle Module= main.main: going to deployVerticle()");
+            int shards = OrderShards.count();
+            AtomicInteger deployed = new AtomicInteger();
+            for (int shard = 0; shard < shards; shard++) {
+                JsonObject config = new JsonObject().put("shard", shard).put("shards", shards);
+                result.result().deployVerticle(OrderVerticle.class.getName(), new DeploymentOptions().setConfig(config), deployResult -> {
+                    if (deployResult.failed()) {
+                        log.info("OrderVerticle Module= main.main: deployVerticle failed, cause: " + deployResult.cause());
+                    } else if (deployed.incrementAndGet() == shards) {
+                        long now = System.nanoTime();
+                        log.info("OrderVerticle Module= main.main: shards deployed, ms= " + TimeUnit.NANOSECONDS.toMillis(now - clusterTime)
+                                + " startup ms= " + TimeUnit.NANOSECONDS.toMillis(now - startTime));
+                    }
+                });
+            }
+        });
+    }
+}
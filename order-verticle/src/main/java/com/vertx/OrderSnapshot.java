@@ -0,0 +1,766 @@
+package com.vertx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, memory-mapped snapshot of the orders of a shard, stored next to the journal segments.
+ * The orders are read straight from the mapped file, nothing is deserialized when the snapshot is opened,
+ * so opening a snapshot takes the same time and heap whatever the number of orders.
+ * <p>
+ * The file is made of fixed-layout sections (all the numbers are big endian ints):
+ * header - magic, format version, covered journal segment, order and string counts and the offset of every section,
+ * records - one record of 3 string ids (orderId, orderName, orderDate, -1 for null) per order, in insertion order
+ * (an orderId is stored once, the section may be followed by unused bytes),
+ * index - open addressing hash table of orderId to record number + 1 (0 is an empty slot), linear probing,
+ * string table - offset and length of every string in the string data,
+ * string data - the UTF-8 bytes of the strings; repeated names and dates are stored once,
+ * date index - date key (long, see OrderQuery.dateKey) and record number of the orders with a valid orderDate, sorted by date key then orderId,
+ * name index - record number of the orders with an orderName, sorted by orderName then orderId (UTF-8 byte order),
+ * day counts - day (long, days since 1970-01-01) and number of orders of every day of the date index, sorted by day.
+ * The sorted sections are searched with a binary search, so a query reads only the entries of its results.
+ * Format version 1 snapshots have no date index, name index and day counts sections, they are rewritten on startup.
+ * <p>
+ * A snapshot named snapshot-N.snap holds all the orders of the journal segments before segment N.
+ * It is written to a temporary file and renamed once complete, so a visible snapshot is never partial.
+ * The mapped file is limited to 2GB.
+ */
+public class OrderSnapshot implements Iterable<Order> {
+
+    private static final Logger log = Logger.getLogger(OrderSnapshot.class.getPackageName());
+
+    public static final String SNAPSHOT_PREFIX = "snapshot-";
+    public static final String SNAPSHOT_SUFFIX = ".snap";
+    public static final String TEMP_SUFFIX = ".tmp";
+    public static final int MAGIC = 0x4F524453;
+    public static final int FORMAT_VERSION = 2;
+    public static final int MIN_HEADER_BYTES = 64;
+    public static final int HEADER_BYTES = 96;
+    public static final int RECORD_BYTES = 12;
+    public static final int INDEX_SLOT_BYTES = 4;
+    public static final int STRING_ENTRY_BYTES = 8;
+    public static final int DATE_ENTRY_BYTES = 12;
+    public static final int NAME_ENTRY_BYTES = 4;
+    public static final int DAY_ENTRY_BYTES = 12;
+    public static final int NO_STRING = -1;
+    public static final Integer STRING_DEDUP_ENTRIES = 4096;
+    public static final Integer WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int formatVersion;
+    private final long coveredSegment;
+    private final int size;
+    private final int recordsOffset;
+    private final int indexOffset;
+    private final int indexMask;
+    private final int stringTableOffset;
+    private final int stringDataOffset;
+    private final int dateIndexOffset;
+    private final int dateIndexSize;
+    private final int nameIndexOffset;
+    private final int nameIndexSize;
+    private final int dayCountsOffset;
+    private final int dayCountsSize;
+
+    private OrderSnapshot(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < MIN_HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("invalid snapshot file " + file);
+        }
+        formatVersion = buffer.getInt(4);
+        if (formatVersion < 1 || formatVersion > FORMAT_VERSION) {
+            throw new IOException("unsupported snapshot format version " + formatVersion + " of " + file);
+        }
+        coveredSegment = buffer.getLong(8);
+        size = buffer.getInt(16);
+        recordsOffset = buffer.getInt(24);
+        indexOffset = buffer.getInt(28);
+        indexMask = buffer.getInt(32) - 1;
+        stringTableOffset = buffer.getInt(36);
+        stringDataOffset = buffer.getInt(40);
+        if (buffer.getInt(44) != buffer.capacity()) {
+            throw new IOException("truncated snapshot file " + file);
+        }
+        boolean sortedSections = formatVersion >= 2;
+        dateIndexOffset = sortedSections ? buffer.getInt(48) : 0;
+        dateIndexSize = sortedSections ? buffer.getInt(52) : 0;
+        nameIndexOffset = sortedSections ? buffer.getInt(56) : 0;
+        nameIndexSize = sortedSections ? buffer.getInt(60) : 0;
+        dayCountsOffset = sortedSections ? buffer.getInt(64) : 0;
+        dayCountsSize = sortedSections ? buffer.getInt(68) : 0;
+    }
+
+    /**
+     * View of a snapshot that is being written, its records and strings are complete but not its sorted sections.
+     */
+    private OrderSnapshot(ByteBuffer buffer, int stringTableOffset, int stringDataOffset) {
+        this.file = null;
+        this.buffer = buffer;
+        this.formatVersion = FORMAT_VERSION;
+        this.coveredSegment = 0;
+        this.size = 0;
+        this.recordsOffset = HEADER_BYTES;
+        this.indexOffset = 0;
+        this.indexMask = 0;
+        this.stringTableOffset = stringTableOffset;
+        this.stringDataOffset = stringDataOffset;
+        this.dateIndexOffset = 0;
+        this.dateIndexSize = 0;
+        this.nameIndexOffset = 0;
+        this.nameIndexSize = 0;
+        this.dayCountsOffset = 0;
+        this.dayCountsSize = 0;
+    }
+
+    /**
+     * This method maps an existing snapshot file.
+     */
+    public static OrderSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("snapshot file is too large " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new OrderSnapshot(file, mapped);
+        }
+    }
+
+    /**
+     * This method maps the most recent snapshot of the directory and removes the leftovers of interrupted writes.
+     *
+     * @return the latest snapshot, or null if the directory has none
+     */
+    public static OrderSnapshot openLatest(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path temp : files.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX)).collect(Collectors.toList())) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        List<Path> snapshots = listSnapshots(directory);
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+        OrderSnapshot snapshot = open(snapshots.get(snapshots.size() - 1));
+        log.info("orderSnapshot.openLatest: snapshot mapped= " + snapshot.file + " orders= " + snapshot.size);
+        return snapshot;
+    }
+
+    /**
+     * This method writes a new snapshot of the given orders into the directory and maps it.
+     * An orderId is written once, the first order with a given orderId is kept and the next ones are skipped.
+     * The orders are streamed: only a few primitive values per order (the hash and date key, the hash index slots and the
+     * positions of the sorted sections) and a bounded cache of recent strings are kept in memory while writing.
+     * The duplicates and the order of the sorted sections are found by comparing the strings in the file.
+     *
+     * @param coveredSegment the first journal segment that is not part of the snapshot
+     */
+    public static OrderSnapshot write(Path directory, long coveredSegment, Iterator<Order> orders) throws IOException {
+        Path target = directory.resolve(fileName(coveredSegment));
+        Path temp = directory.resolve(target.getFileName() + TEMP_SUFFIX);
+        Path stringTableTemp = directory.resolve(target.getFileName() + ".strings" + TEMP_SUFFIX);
+        Path stringDataTemp = directory.resolve(target.getFileName() + ".data" + TEMP_SUFFIX);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel stringTableOut = FileChannel.open(stringTableTemp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel stringDataOut = FileChannel.open(stringDataTemp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            StringTableWriter strings = new StringTableWriter(new ChannelWriter(stringTableOut, 0), new ChannelWriter(stringDataOut, 0));
+            ChannelWriter records = new ChannelWriter(out, HEADER_BYTES);
+            int[] hashes = new int[1024];
+            long[] dateKeys = new long[1024];
+            BitSet dated = new BitSet();
+            BitSet named = new BitSet();
+            int inputCount = 0;
+            while (orders.hasNext()) {
+                Order order = orders.next();
+                if (inputCount == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, inputCount * 2);
+                    dateKeys = Arrays.copyOf(dateKeys, inputCount * 2);
+                }
+                Long dateKey = OrderQuery.dateKey(order.getOrderDate());
+                if (dateKey != null) {
+                    dateKeys[inputCount] = dateKey;
+                    dated.set(inputCount);
+                }
+                if (order.getOrderName() != null) {
+                    named.set(inputCount);
+                }
+                hashes[inputCount++] = order.getOrderId().hashCode();
+                records.putInt(strings.add(order.getOrderId(), false));
+                records.putInt(strings.add(order.getOrderName(), true));
+                records.putInt(strings.add(order.getOrderDate(), true));
+            }
+            strings.flush();
+            records.flush();
+
+            int slots = Integer.highestOneBit(Math.max(2, inputCount * 2) - 1) << 1;
+            long indexOffset = HEADER_BYTES + (long) inputCount * RECORD_BYTES;
+            long stringTableOffset = indexOffset + (long) slots * INDEX_SLOT_BYTES;
+            long stringDataOffset = stringTableOffset + stringTableOut.size();
+            long dateIndexOffset = stringDataOffset + stringDataOut.size();
+            // at most one date entry and one day per dated order, the exact sizes are known once the orders are deduplicated
+            if (dateIndexOffset + (long) dated.cardinality() * (DATE_ENTRY_BYTES + DAY_ENTRY_BYTES)
+                    + (long) named.cardinality() * NAME_ENTRY_BYTES > Integer.MAX_VALUE) {
+                throw new IOException("snapshot larger than 2GB is not supported, orders= " + inputCount);
+            }
+            transfer(stringTableOut, out, stringTableOffset);
+            transfer(stringDataOut, out, stringDataOffset);
+
+            // the hash index is built on the written records and strings, a record whose orderId was already indexed
+            // is dropped and the next records are moved down in place (the records section may end before the index)
+            MappedByteBuffer mapped = out.map(FileChannel.MapMode.READ_WRITE, 0, dateIndexOffset);
+            OrderSnapshot written = new OrderSnapshot(mapped, (int) stringTableOffset, (int) stringDataOffset);
+            int[] index = new int[slots];
+            int count = 0;
+            for (int i = 0; i < inputCount; i++) {
+                int orderId = written.orderIdOf(i);
+                int slot = mix(hashes[i]) & (slots - 1);
+                while (index[slot] != 0 && (hashes[index[slot] - 1] != hashes[i]
+                        || written.compareStrings(written.orderIdOf(index[slot] - 1), orderId) != 0)) {
+                    slot = (slot + 1) & (slots - 1);
+                }
+                if (index[slot] != 0) {
+                    continue;
+                }
+                if (count < i) {
+                    for (int field = 0; field < RECORD_BYTES; field += Integer.BYTES) {
+                        mapped.putInt(HEADER_BYTES + count * RECORD_BYTES + field, mapped.getInt(HEADER_BYTES + i * RECORD_BYTES + field));
+                    }
+                    hashes[count] = hashes[i];
+                    dateKeys[count] = dateKeys[i];
+                    dated.set(count, dated.get(i));
+                    named.set(count, named.get(i));
+                }
+                index[slot] = ++count;
+            }
+            dated.clear(count, inputCount);
+            named.clear(count, inputCount);
+            for (int slot = 0; slot < slots; slot++) {
+                mapped.putInt((int) indexOffset + slot * INDEX_SLOT_BYTES, index[slot]);
+            }
+            mapped.force();
+
+            long[] keys = dateKeys;
+            int[] byDate = dated.stream().toArray();
+            sortPositions(byDate, (first, second) -> {
+                int result = Long.compare(keys[first], keys[second]);
+                return result != 0 ? result : written.compareStrings(written.orderIdOf(first), written.orderIdOf(second));
+            });
+            int[] byName = named.stream().toArray();
+            sortPositions(byName, (first, second) -> {
+                int result = written.compareStrings(written.orderNameOf(first), written.orderNameOf(second));
+                return result != 0 ? result : written.compareStrings(written.orderIdOf(first), written.orderIdOf(second));
+            });
+            long nameIndexOffset = dateIndexOffset + (long) byDate.length * DATE_ENTRY_BYTES;
+            long dayCountsOffset = nameIndexOffset + (long) byName.length * NAME_ENTRY_BYTES;
+
+            ChannelWriter sections = new ChannelWriter(out, dateIndexOffset);
+            int days = 0;
+            for (int i = 0; i < byDate.length; i++) {
+                sections.putLong(keys[byDate[i]]);
+                sections.putInt(byDate[i]);
+                if (i == 0 || OrderQuery.epochDay(keys[byDate[i]]) != OrderQuery.epochDay(keys[byDate[i - 1]])) {
+                    days++;
+                }
+            }
+            for (int position : byName) {
+                sections.putInt(position);
+            }
+            for (int i = 0; i < byDate.length; ) {
+                long day = OrderQuery.epochDay(keys[byDate[i]]);
+                int dayCount = 0;
+                while (i < byDate.length && OrderQuery.epochDay(keys[byDate[i]]) == day) {
+                    dayCount++;
+                    i++;
+                }
+                sections.putLong(day);
+                sections.putInt(dayCount);
+            }
+            sections.flush();
+            long fileSize = dayCountsOffset + (long) days * DAY_ENTRY_BYTES;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(0, MAGIC)
+                    .putInt(4, FORMAT_VERSION)
+                    .putLong(8, coveredSegment)
+                    .putInt(16, count)
+                    .putInt(20, strings.count)
+                    .putInt(24, HEADER_BYTES)
+                    .putInt(28, (int) indexOffset)
+                    .putInt(32, slots)
+                    .putInt(36, (int) stringTableOffset)
+                    .putInt(40, (int) stringDataOffset)
+                    .putInt(44, (int) fileSize)
+                    .putInt(48, (int) dateIndexOffset)
+                    .putInt(52, byDate.length)
+                    .putInt(56, (int) nameIndexOffset)
+                    .putInt(60, byName.length)
+                    .putInt(64, (int) dayCountsOffset)
+                    .putInt(68, days);
+            while (header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            Files.deleteIfExists(stringTableTemp);
+            Files.deleteIfExists(stringDataTemp);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(directory);
+        return open(target);
+    }
+
+    /**
+     * This method deletes the snapshots older than this one, they are fully contained in it.
+     */
+    public void deleteOlderSnapshots() throws IOException {
+        for (Path snapshot : listSnapshots(file.getParent())) {
+            if (coveredSegmentOf(snapshot) < coveredSegment) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+    }
+
+    public long getCoveredSegment() {
+        return coveredSegment;
+    }
+
+    public int getFormatVersion() {
+        return formatVersion;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the order at the given position (insertion order)
+     */
+    public Order get(int position) {
+        int record = recordsOffset + position * RECORD_BYTES;
+        return new Order(string(buffer.getInt(record)), string(buffer.getInt(record + 4)), string(buffer.getInt(record + 8)));
+    }
+
+    /**
+     * This method looks up an orderId in the hash index, the candidates are compared on their UTF-8 bytes.
+     *
+     * @return the position of the order, or -1 if the snapshot does not hold it
+     */
+    public int indexOf(String orderId) {
+        byte[] key = orderId.getBytes(StandardCharsets.UTF_8);
+        int slot = mix(orderId.hashCode()) & indexMask;
+        while (true) {
+            int value = buffer.getInt(indexOffset + slot * INDEX_SLOT_BYTES);
+            if (value == 0) {
+                return -1;
+            }
+            if (stringEquals(buffer.getInt(recordsOffset + (value - 1) * RECORD_BYTES), key)) {
+                return value - 1;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+    }
+
+    public int dateIndexSize() {
+        return dateIndexSize;
+    }
+
+    public long dateKeyAt(int entry) {
+        return buffer.getLong(dateIndexOffset + entry * DATE_ENTRY_BYTES);
+    }
+
+    public Order dateOrderAt(int entry) {
+        return get(buffer.getInt(dateIndexOffset + entry * DATE_ENTRY_BYTES + 8));
+    }
+
+    /**
+     * This method searches the date index for the first entry after (dateKey, orderId), or at it when inclusive.
+     * A null orderId comes before every orderId.
+     *
+     * @return the number of the entry, dateIndexSize() if there is none
+     */
+    public int dateSearch(long dateKey, String orderId, boolean inclusive) {
+        byte[] orderIdBytes = orderId == null ? null : orderId.getBytes(StandardCharsets.UTF_8);
+        return lowerBound(dateIndexSize, entry -> {
+            int result = Long.compare(dateKeyAt(entry), dateKey);
+            if (result == 0) {
+                int position = buffer.getInt(dateIndexOffset + entry * DATE_ENTRY_BYTES + 8);
+                result = orderIdBytes == null ? 1 : compareString(orderIdOf(position), orderIdBytes);
+            }
+            return inclusive ? result >= 0 : result > 0;
+        });
+    }
+
+    public int nameIndexSize() {
+        return nameIndexSize;
+    }
+
+    public Order nameOrderAt(int entry) {
+        return get(buffer.getInt(nameIndexOffset + entry * NAME_ENTRY_BYTES));
+    }
+
+    /**
+     * This method searches the name index for the first entry after (orderName, orderId), or at it when inclusive.
+     * A null orderId comes before every orderId.
+     *
+     * @return the number of the entry, nameIndexSize() if there is none
+     */
+    public int nameSearch(String orderName, String orderId, boolean inclusive) {
+        byte[] nameBytes = orderName.getBytes(StandardCharsets.UTF_8);
+        byte[] orderIdBytes = orderId == null ? null : orderId.getBytes(StandardCharsets.UTF_8);
+        return lowerBound(nameIndexSize, entry -> {
+            int position = buffer.getInt(nameIndexOffset + entry * NAME_ENTRY_BYTES);
+            int result = compareString(orderNameOf(position), nameBytes);
+            if (result == 0) {
+                result = orderIdBytes == null ? 1 : compareString(orderIdOf(position), orderIdBytes);
+            }
+            return inclusive ? result >= 0 : result > 0;
+        });
+    }
+
+    /**
+     * @return the number of the first name index entry after all the names that start with the prefix
+     */
+    public int namePrefixEnd(String prefix) {
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        return lowerBound(nameIndexSize, entry ->
+                comparePrefix(orderNameOf(buffer.getInt(nameIndexOffset + entry * NAME_ENTRY_BYTES)), prefixBytes) > 0);
+    }
+
+    public int dayCountsSize() {
+        return dayCountsSize;
+    }
+
+    public long dayAt(int entry) {
+        return buffer.getLong(dayCountsOffset + entry * DAY_ENTRY_BYTES);
+    }
+
+    public int dayCountAt(int entry) {
+        return buffer.getInt(dayCountsOffset + entry * DAY_ENTRY_BYTES + 8);
+    }
+
+    /**
+     * @return the number of the first day counts entry at or after the given day, dayCountsSize() if there is none
+     */
+    public int daySearch(long day) {
+        return lowerBound(dayCountsSize, entry -> dayAt(entry) >= day);
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            public Order next() {
+                if (position >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(position++);
+            }
+        };
+    }
+
+    private String string(int id) {
+        if (id == NO_STRING) {
+            return null;
+        }
+        int entry = stringTableOffset + id * STRING_ENTRY_BYTES;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringDataOffset + buffer.getInt(entry));
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int id, byte[] key) {
+        int entry = stringTableOffset + id * STRING_ENTRY_BYTES;
+        if (buffer.getInt(entry + 4) != key.length) {
+            return false;
+        }
+        int offset = stringDataOffset + buffer.getInt(entry);
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int orderIdOf(int position) {
+        return buffer.getInt(recordsOffset + position * RECORD_BYTES);
+    }
+
+    private int orderNameOf(int position) {
+        return buffer.getInt(recordsOffset + position * RECORD_BYTES + 4);
+    }
+
+    /**
+     * This method compares two strings of the string table by their UTF-8 bytes (unsigned), null first.
+     */
+    private int compareStrings(int firstId, int secondId) {
+        if (firstId == NO_STRING || secondId == NO_STRING) {
+            return Boolean.compare(firstId != NO_STRING, secondId != NO_STRING);
+        }
+        int firstEntry = stringTableOffset + firstId * STRING_ENTRY_BYTES;
+        int secondEntry = stringTableOffset + secondId * STRING_ENTRY_BYTES;
+        return compareBytes(stringDataOffset + buffer.getInt(firstEntry), buffer.getInt(firstEntry + 4),
+                stringDataOffset + buffer.getInt(secondEntry), buffer.getInt(secondEntry + 4));
+    }
+
+    private int compareString(int id, byte[] key) {
+        int entry = stringTableOffset + id * STRING_ENTRY_BYTES;
+        int offset = stringDataOffset + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            int result = Integer.compare(buffer.get(offset + i) & 0xff, key[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    /**
+     * @return 0 if the string starts with the prefix, otherwise the order of the string compared to the prefix
+     */
+    private int comparePrefix(int id, byte[] prefix) {
+        int entry = stringTableOffset + id * STRING_ENTRY_BYTES;
+        int offset = stringDataOffset + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        for (int i = 0; i < Math.min(length, prefix.length); i++) {
+            int result = Integer.compare(buffer.get(offset + i) & 0xff, prefix[i] & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return length >= prefix.length ? 0 : -1;
+    }
+
+    private int compareBytes(int firstOffset, int firstLength, int secondOffset, int secondLength) {
+        for (int i = 0; i < Math.min(firstLength, secondLength); i++) {
+            int result = Integer.compare(buffer.get(firstOffset + i) & 0xff, buffer.get(secondOffset + i) & 0xff);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(firstLength, secondLength);
+    }
+
+    /**
+     * This method sorts record positions with a comparator of primitive ints (bottom-up merge sort), so the positions
+     * of a large snapshot are not boxed.
+     */
+    private static void sortPositions(int[] positions, IntBinaryOperator comparator) {
+        int[] source = positions;
+        int[] target = new int[positions.length];
+        for (int width = 1; width < positions.length; width *= 2) {
+            for (int low = 0; low < positions.length; low += 2 * width) {
+                int middle = Math.min(low + width, positions.length);
+                int high = Math.min(middle + width, positions.length);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (right >= high || (left < middle && comparator.applyAsInt(source[left], source[right]) <= 0)) {
+                        target[i] = source[left++];
+                    } else {
+                        target[i] = source[right++];
+                    }
+                }
+            }
+            int[] sorted = target;
+            target = source;
+            source = sorted;
+        }
+        if (source != positions) {
+            System.arraycopy(source, 0, positions, 0, positions.length);
+        }
+    }
+
+    /**
+     * @return the first entry of a sorted section for which the (monotonic) predicate is true, size if there is none
+     */
+    private static int lowerBound(int size, IntPredicate isAtOrAfter) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (isAtOrAfter.test(middle)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void transfer(FileChannel source, FileChannel target, long position) throws IOException {
+        long transferred = 0;
+        long size = source.size();
+        while (transferred < size) {
+            transferred += source.transferTo(transferred, size - transferred, target.position(position + transferred));
+        }
+    }
+
+    /**
+     * The rename of the snapshot is durable only once the directory itself is forced (not supported on every platform).
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.info("orderSnapshot.forceDirectory: can't force directory " + directory + " cause: " + e.getMessage());
+        }
+    }
+
+    private static List<Path> listSnapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .sorted((first, second) -> Long.compare(coveredSegmentOf(first), coveredSegmentOf(second)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String fileName(long coveredSegment) {
+        return String.format("%s%016d%s", SNAPSHOT_PREFIX, coveredSegment, SNAPSHOT_SUFFIX);
+    }
+
+    private static long coveredSegmentOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    /**
+     * Buffered sequential writer of a file channel, starting at the given position.
+     */
+    private static class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer pending = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+        private long position;
+
+        private ChannelWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        private void putInt(int value) throws IOException {
+            if (pending.remaining() < Integer.BYTES) {
+                flush();
+            }
+            pending.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            if (pending.remaining() < Long.BYTES) {
+                flush();
+            }
+            pending.putLong(value);
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            if (pending.remaining() < bytes.length) {
+                flush();
+            }
+            if (bytes.length > pending.capacity()) {
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    position += channel.write(large, position);
+                }
+                return;
+            }
+            pending.put(bytes);
+        }
+
+        private void flush() throws IOException {
+            pending.flip();
+            while (pending.hasRemaining()) {
+                position += channel.write(pending, position);
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Writer of the string table and string data sections, strings seen recently are stored only once.
+     */
+    private static class StringTableWriter {
+        private final ChannelWriter table;
+        private final ChannelWriter data;
+        private final Map<String, Integer> recent = new LinkedHashMap<>(STRING_DEDUP_ENTRIES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > STRING_DEDUP_ENTRIES;
+            }
+        };
+        private int count;
+        private long dataSize;
+
+        private StringTableWriter(ChannelWriter table, ChannelWriter data) {
+            this.table = table;
+            this.data = data;
+        }
+
+        private int add(String value, boolean deduplicate) throws IOException {
+            if (value == null) {
+                return NO_STRING;
+            }
+            if (deduplicate) {
+                Integer id = recent.get(value);
+                if (id != null) {
+                    return id;
+                }
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (dataSize + bytes.length > Integer.MAX_VALUE) {
+                throw new IOException("snapshot larger than 2GB is not supported");
+            }
+            table.putInt((int) dataSize);
+            table.putInt(bytes.length);
+            data.put(bytes);
+            dataSize += bytes.length;
+            if (deduplicate) {
+                recent.put(value, count);
+            }
+            return count++;
+        }
+
+        private void flush() throws IOException {
+            table.flush();
+            data.flush();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.vertx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * In-memory store of the orders owned by an OrderVerticle.
+ * The orders are made of the latest snapshot (memory-mapped, see OrderSnapshot) followed by the orders added since,
+ * which are kept in insertion order together with a hash index by orderId, so reads never wait for the disk.
+ * Queries by date range and name prefix are answered from the sorted sections of the snapshot and the OrderIndex
+ * of the newer orders.
+ * The store is not thread safe, it must only be used from the event loop of its verticle.
+ */
+public class OrderStore {
+
+    private OrderSnapshot snapshot;
+    private final List<Order> orders = new ArrayList<>();
+    private final Map<String, Order> ordersById = new HashMap<>();
+    private final OrderIndex index = new OrderIndex();
+
+    /**
+     * This method adds an order to the store.
+     *
+     * @return false if an order with the same orderId already exists
+     */
+    public boolean add(Order order) {
+        if (contains(order.getOrderId())) {
+            return false;
+        }
+        ordersById.put(order.getOrderId(), order);
+        orders.add(order);
+        index.add(order);
+        return true;
+    }
+
+    public boolean contains(String orderId) {
+        return ordersById.containsKey(orderId) || (snapshot != null && snapshot.indexOf(orderId) >= 0);
+    }
+
+    /**
+     * @return the order with the given orderId, or null if it does not exist
+     */
+    public Order get(String orderId) {
+        Order order = ordersById.get(orderId);
+        if (order != null || snapshot == null) {
+            return order;
+        }
+        int position = snapshot.indexOf(orderId);
+        return position >= 0 ? snapshot.get(position) : null;
+    }
+
+    public int size() {
+        return snapshotSize() + orders.size();
+    }
+
+    /**
+     * @return a page of at most limit orders in insertion order, starting at the given offset
+     */
+    public OrderPage page(int offset, int limit) {
+        int size = size();
+        int from = Math.min(offset, size);
+        int to = Math.min(from + limit, size);
+        List<Order> page = new ArrayList<>(to - from);
+        for (int position = from; position < to; position++) {
+            page.add(position < snapshotSize() ? snapshot.get(position) : orders.get(position - snapshotSize()));
+        }
+        return new OrderPage(page, size);
+    }
+
+    /**
+     * @return the latest snapshot, or null if the store has none
+     */
+    public OrderSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return the number of orders added since the latest snapshot
+     */
+    public int unsnapshotSize() {
+        return orders.size();
+    }
+
+    /**
+     * @return a copy of the first count orders added since the latest snapshot
+     */
+    public List<Order> unsnapshotOrders(int count) {
+        return new ArrayList<>(orders.subList(0, count));
+    }
+
+    /**
+     * This method replaces the snapshot of the store by a newer one.
+     * The new snapshot holds the orders of the current snapshot and the first coveredOrders orders added since,
+     * these orders are released from the heap.
+     */
+    public void installSnapshot(OrderSnapshot newSnapshot, int coveredOrders) {
+        List<Order> covered = orders.subList(0, coveredOrders);
+        covered.forEach(order -> {
+            ordersById.remove(order.getOrderId());
+            index.remove(order);
+        });
+        covered.clear();
+        snapshot = newSnapshot;
+    }
+
+    /**
+     * This method answers a query with at most limit orders, in the order of the query, and the orders per day of its date range.
+     * The snapshot and the newer orders are read in order from the first result on, and merged, until the limit is reached
+     * or the range ends. With both a date range and a name prefix, the index with the fewer candidates is read:
+     * the date index is read in order and filtered by name, the name index is read for the whole prefix, filtered by date,
+     * and only the first limit orders are kept. The number of candidates is taken from the day counts of the query and
+     * from the name sections (binary searches of the snapshot, a walk of the index bounded by the date range count).
+     */
+    public OrderQueryResult query(OrderQuery query) {
+        SortedMap<Long, Integer> countsByDay = query.isByDate() ? countsByDay(query) : new TreeMap<>();
+        List<Order> result;
+        if (query.isByDate() && query.getNamePrefix() != null) {
+            long dateRangeCount = 0;
+            for (int dayCount : countsByDay.values()) {
+                dateRangeCount += dayCount;
+            }
+            result = namePrefixCount(query.getNamePrefix(), dateRangeCount) < dateRangeCount ? queryByNamePrefix(query) : queryInOrder(query);
+        } else {
+            result = queryInOrder(query);
+        }
+        return new OrderQueryResult(result, countsByDay);
+    }
+
+    private List<Order> queryInOrder(OrderQuery query) {
+        Iterator<Order> candidates;
+        Order after = query.getAfter();
+        if (query.isByDate()) {
+            Long afterKey = after == null ? null : OrderQuery.dateKey(after.getOrderDate());
+            boolean fromCursor = afterKey != null && afterKey >= query.getFromKey();
+            long dateKey = fromCursor ? afterKey : query.getFromKey();
+            String orderId = fromCursor ? after.getOrderId() : null;
+            candidates = merge(
+                    snapshot == null ? Collections.emptyIterator()
+                            : entries(snapshot.dateSearch(dateKey, orderId, !fromCursor), snapshot.dateIndexSize(), snapshot::dateOrderAt),
+                    index.ordersByDate(dateKey, orderId, !fromCursor),
+                    query.comparator());
+        } else {
+            String prefix = query.getNamePrefix();
+            boolean fromCursor = after != null && after.getOrderName() != null && OrderQuery.compareCodePoints(after.getOrderName(), prefix) >= 0;
+            String orderName = fromCursor ? after.getOrderName() : prefix;
+            String orderId = fromCursor ? after.getOrderId() : null;
+            candidates = merge(
+                    snapshot == null ? Collections.emptyIterator()
+                            : entries(snapshot.nameSearch(orderName, orderId, !fromCursor), snapshot.namePrefixEnd(prefix), snapshot::nameOrderAt),
+                    index.ordersByName(orderName, orderId, !fromCursor),
+                    query.comparator());
+        }
+
+        List<Order> result = new ArrayList<>();
+        while (candidates.hasNext() && result.size() < query.getLimit()) {
+            Order order = candidates.next();
+            if (isAfterRange(query, order)) {
+                break;
+            }
+            if (query.matches(order) && query.isAfterCursor(order)) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method reads the name sections for the whole prefix, the first limit matches in the order of the query are kept
+     * in a bounded heap whose head is the last of them.
+     */
+    private List<Order> queryByNamePrefix(OrderQuery query) {
+        if (query.getLimit() <= 0) {
+            return new ArrayList<>();
+        }
+        String prefix = query.getNamePrefix();
+        Comparator<Order> order = query.comparator();
+        PriorityQueue<Order> matches = new PriorityQueue<>(query.getLimit() + 1, order.reversed());
+        Iterator<Order> candidates = merge(
+                snapshot == null ? Collections.emptyIterator()
+                        : entries(snapshot.nameSearch(prefix, null, true), snapshot.namePrefixEnd(prefix), snapshot::nameOrderAt),
+                index.ordersByName(prefix, null, true),
+                new OrderQuery(null, null, prefix, 0, null).comparator());
+        while (candidates.hasNext()) {
+            Order candidate = candidates.next();
+            if (!candidate.getOrderName().startsWith(prefix)) {
+                break;
+            }
+            if (query.matches(candidate) && query.isAfterCursor(candidate)
+                    && (matches.size() < query.getLimit() || order.compare(candidate, matches.peek()) < 0)) {
+                matches.add(candidate);
+                if (matches.size() > query.getLimit()) {
+                    matches.poll();
+                }
+            }
+        }
+        List<Order> result = new ArrayList<>(matches);
+        result.sort(order);
+        return result;
+    }
+
+    /**
+     * @return true if the order, and so every order after it, is after the date range or the name prefix of the query
+     */
+    private static boolean isAfterRange(OrderQuery query, Order order) {
+        if (query.isByDate()) {
+            return OrderQuery.dateKey(order.getOrderDate()) > query.getToKey();
+        }
+        return !order.getOrderName().startsWith(query.getNamePrefix());
+    }
+
+    private SortedMap<Long, Integer> countsByDay(OrderQuery query) {
+        long fromDay = OrderQuery.epochDay(query.getFromKey());
+        long toDay = OrderQuery.epochDay(query.getToKey());
+        SortedMap<Long, Integer> countsByDay = new TreeMap<>(index.countsByDay(fromDay, toDay));
+        if (snapshot != null) {
+            for (int entry = snapshot.daySearch(fromDay); entry < snapshot.dayCountsSize() && snapshot.dayAt(entry) <= toDay; entry++) {
+                countsByDay.merge(snapshot.dayAt(entry), snapshot.dayCountAt(entry), Integer::sum);
+            }
+        }
+        return countsByDay;
+    }
+
+    /**
+     * @return the number of orders whose name starts with the prefix, or at least max if there are more
+     */
+    private long namePrefixCount(String prefix, long max) {
+        long count = snapshot == null ? 0 : snapshot.namePrefixEnd(prefix) - snapshot.nameSearch(prefix, null, true);
+        return count >= max ? count : count + index.countByNamePrefix(prefix, max - count);
+    }
+
+    /**
+     * @return the orders of the entries from (inclusive) to (exclusive) of a sorted section of the snapshot
+     */
+    private static Iterator<Order> entries(int from, int to, IntFunction<Order> orderAt) {
+        return new Iterator<>() {
+            private int entry = from;
+
+            @Override
+            public boolean hasNext() {
+                return entry < to;
+            }
+
+            @Override
+            public Order next() {
+                if (entry >= to) {
+                    throw new NoSuchElementException();
+                }
+                return orderAt.apply(entry++);
+            }
+        };
+    }
+
+    /**
+     * @return the orders of two sorted iterators, merged in the given order
+     */
+    private static Iterator<Order> merge(Iterator<Order> first, Iterator<Order> second, Comparator<Order> comparator) {
+        return new Iterator<>() {
+            private Order firstNext = first.hasNext() ? first.next() : null;
+            private Order secondNext = second.hasNext() ? second.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return firstNext != null || secondNext != null;
+            }
+
+            @Override
+            public Order next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Order next;
+                if (secondNext == null || (firstNext != null && comparator.compare(firstNext, secondNext) <= 0)) {
+                    next = firstNext;
+                    firstNext = first.hasNext() ? first.next() : null;
+                } else {
+                    next = secondNext;
+                    secondNext = second.hasNext() ? second.next() : null;
+                }
+                return next;
+            }
+        };
+    }
+
+    private int snapshotSize() {
+        return snapshot != null ? snapshot.size() : 0;
+    }
+}
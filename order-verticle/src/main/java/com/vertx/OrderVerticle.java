@@ -1,103 +1,474 @@
 package com.vertx;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Promise;
-import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.file.FileSystem;
-import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class OrderVerticle extends AbstractVerticle {
 
     private static final Logger log = Logger.getLogger(OrderVerticle.class.getPackageName());
 
     public static final String JSON_ORDERS_FILE = "orders.json";
+    public static final String ORDERS_JOURNAL_DIR = "orders-journal";
     public static final String ORDER_VERTICAL_SERVICE = "order-verticle-service";
 
+    public static final Long GROUP_COMMIT_WINDOW_MS = 2L;
+    public static final Long JOURNAL_SEGMENT_MAX_BYTES = 64L * 1024 * 1024;
+    public static final Long SNAPSHOT_INTERVAL_MS = 60000L;
+    public static final Integer SNAPSHOT_MIN_ORDERS = 10000;
+
+    public static final Integer FAILURE_BAD_REQUEST = 400;
+    public static final Integer FAILURE_NOT_FOUND = 404;
+    public static final Integer FAILURE_OVERLOADED = 503;
+    public static final Integer MAX_PAGE_LIMIT = 1000;
+    public static final Integer MAX_PENDING_ORDERS = 10000;
+
+    private final OrderStore store = new OrderStore();
+    private final Set<String> pendingOrderIds = new HashSet<>();
+    private OrderJournal journal;
+    private Path journalDirectory;
+    private int shard;
+    private int shards;
+    private int maxPendingOrders;
+    private int snapshotMinOrders;
+    private long snapshotTimerId = -1;
+    private long eventLoopLagTimerId = -1;
+    private boolean snapshotInProgress;
+    private Timer snapshotTimer;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private long version;
+
     /**
      * This method use Vert.x Event Bus to manage requests received from the RestVertical module.
+     * Each OrderVerticle instance is the single writer of one shard (the "shard" and "shards" config entries),
+     * the start fails without the "shard" entry and the number of shards defaults to OrderShards.count(), like the RestVerticle,
+     * so the two modules can't disagree on the shard of an order (deploy the module with OrderMain, not a bare vertx run).
+     * it owns its own journal directory and consumes the shard specific Event Bus addresses.
      * The Event Bus will direct each request to the relevant method.
+     * Before the consumers are registered, the order store is rebuilt from the latest snapshot of the shard
+     * (memory-mapped, so its orders are not loaded in the heap) and the journal segments written after it.
+     * A new snapshot is written every snapshotIntervalMs once snapshotMinOrders orders were added since the latest one,
+     * so the restart time does not grow with the number of orders.
+     * Every reply carries the queue depth of the shard (orders waiting for their journal commit) in the queueDepth header,
+     * and new orders are refused with 503 once maxPendingOrders orders are waiting.
+     * The data version of the shard is bumped on every stored order, it is used by the RestVerticle for conditional GET.
      */
     @Override
     public void start(Promise<Void> promise) {
-        log.info("orderVerticle.start: going to startPromise from " + ORDER_VERTICAL_SERVICE);
-        vertx.eventBus().consumer("addOrder", message -> {
-            JsonObject jsonObject = (JsonObject) message.body();
-            addOrder(message, jsonObject.getString("orderID"), jsonObject.getString("orderName"), jsonObject.getString("orderDate"));
+        long startTime = System.nanoTime();
+        if (!config().containsKey("shard")) {
+            log.info("orderVerticle.start: the shard config entry is missing, the OrderVerticle must be deployed by OrderMain");
+            promise.fail("the shard config entry is missing");
+            return;
+        }
+        shard = config().getInteger("shard");
+        shards = config().getInteger("shards", OrderShards.count());
+        maxPendingOrders = config().getInteger("maxPendingOrders", MAX_PENDING_ORDERS);
+        snapshotMinOrders = config().getInteger("snapshotMinOrders", SNAPSHOT_MIN_ORDERS);
+        log.info("orderVerticle.start: going to startPromise from " + ORDER_VERTICAL_SERVICE + " shard= " + shard + "/" + shards);
+        OrderCodecs.register(vertx.eventBus());
+        journalDirectory = Paths.get(config().getString("journalDir", ORDERS_JOURNAL_DIR + "/shard-" + shard));
+        journal = new OrderJournal(vertx,
+                journalDirectory.toString(),
+                config().getLong("groupCommitWindowMs", GROUP_COMMIT_WINDOW_MS),
+                config().getLong("journalSegmentMaxBytes", JOURNAL_SEGMENT_MAX_BYTES),
+                String.valueOf(shard));
+        snapshotTimer = AppMetrics.timer("order.snapshot.write", "shard", String.valueOf(shard));
+        Gauge.builder("orders.stored", store, OrderStore::size)
+                .tag("shard", String.valueOf(shard))
+                .register(AppMetrics.registry());
+        Gauge.builder("orders.pending", pendingOrderIds, Set::size)
+                .tag("shard", String.valueOf(shard))
+                .register(AppMetrics.registry());
+        eventLoopLagTimerId = AppMetrics.monitorEventLoopLag(vertx);
+
+        loadSnapshot(snapshotResult -> {
+            if (snapshotResult.failed()) {
+                log.info("orderVerticle.start: snapshot load failed, cause: " + snapshotResult.cause());
+                promise.fail(snapshotResult.cause());
+                return;
+            }
+            OrderSnapshot snapshot = snapshotResult.result();
+            journal.open(snapshot != null ? snapshot.getCoveredSegment() : 0, replayResult -> {
+                if (replayResult.failed()) {
+                    log.info("orderVerticle.start: journal replay failed, cause: " + replayResult.cause());
+                    promise.fail(replayResult.cause());
+                    return;
+                }
+                replayResult.result().forEach(store::add);
+                importLegacyOrders(importResult -> {
+                    if (importResult.failed()) {
+                        promise.fail(importResult.cause());
+                        return;
+                    }
+                    vertx.eventBus().<Order>consumer(OrderShards.address(OrderShards.ADD_ORDER_ADDRESS, shard), this::addOrder);
+                    vertx.eventBus().<OrderBatch>consumer(OrderShards.address(OrderShards.ADD_ORDERS_ADDRESS, shard), this::addOrders);
+                    vertx.eventBus().<JsonObject>consumer(OrderShards.address(OrderShards.GET_ORDERS_ADDRESS, shard), this::getOrders);
+                    vertx.eventBus().<String>consumer(OrderShards.address(OrderShards.GET_ORDER_ADDRESS, shard), this::getOrder);
+                    vertx.eventBus().<Void>consumer(OrderShards.address(OrderShards.GET_VERSION_ADDRESS, shard), this::getVersion);
+                    vertx.eventBus().<JsonObject>consumer(OrderShards.address(OrderShards.QUERY_ORDERS_ADDRESS, shard), this::queryOrders);
+                    version = store.size();
+                    snapshotTimerId = vertx.setPeriodic(config().getLong("snapshotIntervalMs", SNAPSHOT_INTERVAL_MS), timerId -> takeSnapshot());
+                    log.info("orderVerticle.start: shard ready, orders= " + store.size()
+                            + " replayed orders= " + replayResult.result().size()
+                            + " startup ms= " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                    promise.complete();
+                });
+            });
+        });
+    }
+
+    @Override
+    public void stop(Promise<Void> promise) {
+        vertx.cancelTimer(snapshotTimerId);
+        AppMetrics.stopEventLoopLagMonitor(vertx, eventLoopLagTimerId);
+        journal.close(result -> promise.complete());
+    }
+
+    /**
+     * This method maps the latest snapshot of the shard and installs it in the order store.
+     * A snapshot of an older format (without the sorted sections used by the queries) is rewritten once in the current format.
+     * The handler receives null if the shard has no snapshot yet.
+     */
+    private void loadSnapshot(Handler<AsyncResult<OrderSnapshot>> handler) {
+        vertx.<OrderSnapshot>executeBlocking(promise -> {
+            try {
+                OrderSnapshot snapshot = OrderSnapshot.openLatest(journalDirectory);
+                if (snapshot != null && snapshot.getFormatVersion() < OrderSnapshot.FORMAT_VERSION) {
+                    log.info("orderVerticle.loadSnapshot: going to rewrite snapshot of format version= " + snapshot.getFormatVersion());
+                    snapshot = OrderSnapshot.write(journalDirectory, snapshot.getCoveredSegment(), snapshot.iterator());
+                }
+                promise.complete(snapshot);
+            } catch (IOException e) {
+                promise.fail(e);
+            }
+        }, false, result -> {
+            if (result.succeeded() && result.result() != null) {
+                store.installSnapshot(result.result(), 0);
+            }
+            handler.handle(result);
+        });
+    }
+
+    /**
+     * One time import of the orders saved by previous versions in a local JSON file.
+     * The import runs only while the shard is still empty, afterwards the snapshots and the journal are the only source of the orders.
+     * Each shard imports only the orders it owns, they are streamed from the file straight into a new snapshot.
+     * A missing file is skipped, a file that can't be read or holds an element that is not an order fails the start.
+     */
+    private void importLegacyOrders(Handler<AsyncResult<Void>> handler) {
+        if (store.size() > 0) {
+            handler.handle(Future.succeededFuture());
+            return;
+        }
+        vertx.<LegacyOrderReader>executeBlocking(promise -> {
+            try {
+                LegacyOrderReader reader = LegacyOrderReader.open(JSON_ORDERS_FILE, shard, shards);
+                promise.complete(reader != null && reader.hasNext() ? reader : null);
+            } catch (IOException | UncheckedIOException e) {
+                promise.fail(e);
+            }
+        }, false, openResult -> {
+            if (openResult.failed()) {
+                log.info("orderVerticle.importLegacyOrders: can't read " + JSON_ORDERS_FILE + " cause: " + openResult.cause());
+                handler.handle(Future.failedFuture(openResult.cause()));
+                return;
+            }
+            if (openResult.result() == null) {
+                handler.handle(Future.succeededFuture());
+                return;
+            }
+            LegacyOrderReader reader = openResult.result();
+            log.info("orderVerticle.importLegacyOrders: going to import orders from= " + JSON_ORDERS_FILE);
+            journal.rollSegment(rollResult -> {
+                if (rollResult.failed()) {
+                    reader.close();
+                    handler.handle(Future.failedFuture(rollResult.cause()));
+                    return;
+                }
+                writeSnapshot(rollResult.result(), reader, 0, snapshotResult -> {
+                    reader.close();
+                    handler.handle(snapshotResult);
+                });
+            });
+        });
+    }
+
+    /**
+     * This method saves the orders added since the latest snapshot in a new snapshot, if there are enough of them.
+     * The journal is rolled first: the new snapshot holds the current snapshot and every order of the segments before
+     * the new segment, which are exactly the orders stored at that point.
+     * The orders keep being served from the current snapshot and the heap until the new snapshot is installed.
+     */
+    private void takeSnapshot() {
+        if (snapshotInProgress || store.unsnapshotSize() < snapshotMinOrders) {
+            return;
+        }
+        snapshotInProgress = true;
+        journal.rollSegment(rollResult -> {
+            if (rollResult.failed()) {
+                snapshotInProgress = false;
+                log.info("orderVerticle.takeSnapshot: journal roll failed, cause: " + rollResult.cause());
+                return;
+            }
+            int coveredOrders = store.unsnapshotSize();
+            List<Order> newOrders = store.unsnapshotOrders(coveredOrders);
+            OrderSnapshot current = store.getSnapshot();
+            Iterator<Order> orders = current == null
+                    ? newOrders.iterator()
+                    : Stream.concat(StreamSupport.stream(current.spliterator(), false), newOrders.stream()).iterator();
+            writeSnapshot(rollResult.result(), orders, coveredOrders, snapshotResult -> snapshotInProgress = false);
+        });
+    }
+
+    /**
+     * This method writes a snapshot of the given orders on a worker thread and installs it in the order store.
+     * Once installed, the journal segments and the older snapshots it covers are deleted.
+     *
+     * @param coveredSegment the first journal segment that is not part of the snapshot
+     * @param coveredOrders  the number of orders of the store, added since the current snapshot, that are part of the snapshot
+     */
+    private void writeSnapshot(long coveredSegment, Iterator<Order> orders, int coveredOrders, Handler<AsyncResult<Void>> handler) {
+        log.info("orderVerticle.writeSnapshot: going to write snapshot of shard= " + shard + " covered segment= " + coveredSegment);
+        vertx.<OrderSnapshot>executeBlocking(promise -> {
+            try {
+                long start = System.nanoTime();
+                OrderSnapshot snapshot = OrderSnapshot.write(journalDirectory, coveredSegment, orders);
+                snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                promise.complete(snapshot);
+            } catch (IOException e) {
+                promise.fail(e);
+            }
+        }, false, result -> {
+            if (result.failed()) {
+                log.info("orderVerticle.writeSnapshot: write snapshot - failed, cause: " + result.cause());
+                handler.handle(Future.failedFuture(result.cause()));
+                return;
+            }
+            OrderSnapshot snapshot = result.result();
+            store.installSnapshot(snapshot, coveredOrders);
+            log.info("orderVerticle.writeSnapshot: write snapshot - done, orders= " + snapshot.size());
+            journal.deleteSegmentsBefore(coveredSegment, deleteResult -> {
+                if (deleteResult.failed()) {
+                    log.info("orderVerticle.writeSnapshot: can't delete covered journal segments, cause: " + deleteResult.cause());
+                }
+            });
+            vertx.<Void>executeBlocking(promise -> {
+                try {
+                    snapshot.deleteOlderSnapshots();
+                    promise.complete();
+                } catch (IOException e) {
+                    promise.fail(e);
+                }
+            }, false, deleteResult -> {
+                if (deleteResult.failed()) {
+                    log.info("orderVerticle.writeSnapshot: can't delete older snapshots, cause: " + deleteResult.cause());
+                }
+            });
+            handler.handle(Future.succeededFuture());
         });
-        vertx.eventBus().consumer("getOrders", this::getOrders);
-        promise.complete();
     }
 
     /**
      * This method add new orders to the user existing orders.
-     * All the data will be saved in a local JSON file and include:
+     * The logs of the request carry the request id of the HTTP request (see RequestTrace).
+     * The data will be appended to the orders journal and include:
      * orderID, orderName and orderDate.
-     * The response will be sent to the OrderVerticle module.
+     * The response will be sent to the OrderVerticle module only once the new order is durable.
+     * The orderId is unique, an order with an existing orderId is rejected.
      */
-    private void addOrder(Message<Object> message, String orderId, String orderName, String orderDate) {
-        log.info("orderVerticle.addOrder: going to answer eventBus consumer, adding new order to= " + JSON_ORDERS_FILE);
-        FileSystem fileSystem = vertx.fileSystem();
-
-        log.info("orderVerticle.addOrder: going to read existing data from= " + JSON_ORDERS_FILE);
-        fileSystem.readFile(JSON_ORDERS_FILE, res -> {
-            if (res.succeeded()) {
-                Buffer bufferReader = res.result();
-                JsonObject newOrder = new JsonObject();
-                JsonArray jsonArray = bufferReader.toJsonArray();
-
-                newOrder.put("orderId", orderId);
-                newOrder.put("orderName", orderName);
-                newOrder.put("orderDate", orderDate);
-                jsonArray.add(newOrder);
-
-                log.info("orderVerticle.addOrder: going to write new order data from= " + JSON_ORDERS_FILE);
-                Buffer bufferWriter = jsonArray.toBuffer();
-                vertx.fileSystem().writeFile(JSON_ORDERS_FILE, bufferWriter, asyncResult -> {
-                    if (asyncResult.succeeded()) {
-                        log.info("orderVerticle.addOrder: write new order - done");
-                        messageResponse(message, "false", "order data succeed");
-                    } else {
-                        log.info("orderVerticle.addOrder: write new order - failed");
-                        messageResponse(message, "true", "something went wrong while writing to fileSystem");
-                    }
-                });
+    private void addOrder(Message<Order> message) {
+        RequestTrace.log(log, message, "orderVerticle.addOrder: going to answer eventBus consumer, adding new order to the orders journal");
+        Order newOrder = message.body();
+        String orderId = newOrder.getOrderId();
+        if (OrderShards.shardOf(orderId, shards) != shard) {
+            if (RequestTrace.isLoggable(log, message)) {
+                RequestTrace.log(log, message, "orderVerticle.addOrder: order belongs to another shard, orderId= " + orderId);
+            }
+            messageResponse(message, true, "order sent to the wrong shard");
+            return;
+        }
+        if (pendingOrderIds.size() >= maxPendingOrders) {
+            if (RequestTrace.isLoggable(log, message)) {
+                RequestTrace.log(log, message, "orderVerticle.addOrder: shard overloaded, pending orders= " + pendingOrderIds.size());
+            }
+            message.fail(FAILURE_OVERLOADED, "order service overloaded");
+            return;
+        }
+        if (store.contains(orderId) || !pendingOrderIds.add(orderId)) {
+            if (RequestTrace.isLoggable(log, message)) {
+                RequestTrace.log(log, message, "orderVerticle.addOrder: order already exists, orderId= " + orderId);
+            }
+            messageResponse(message, true, "order already exists");
+            return;
+        }
+
+        journal.append(newOrder, asyncResult -> {
+            pendingOrderIds.remove(orderId);
+            if (asyncResult.succeeded()) {
+                store.add(newOrder);
+                version++;
+                RequestTrace.log(log, message, "orderVerticle.addOrder: write new order - done");
+                messageResponse(message, false, "order data succeed");
             } else {
-                messageResponse(message, "true", "something went wrong while reading from fileSystem");
+                RequestTrace.of(message).log(log, Level.SEVERE, "orderVerticle.addOrder: write new order - failed, cause: " + asyncResult.cause());
+                messageResponse(message, true, "something went wrong while writing to fileSystem");
             }
         });
     }
 
     /**
-     * This method will return all user orders.
-     * The response will be sent to the OrderVerticle module.
+     * This method add a batch of new orders, all the accepted orders of the batch are committed with a single journal write.
+     * Orders of another shard and orders with an existing orderId (also within the batch) are rejected one by one.
+     * The response holds one result per order, in the order of the batch, and is sent once the accepted orders are durable.
      */
-    private void getOrders(Message<Object> message) {
-        log.info("orderVerticle.getOrders: going to answer eventBus consumer");
-
-        FileSystem fileSystem = vertx.fileSystem();
-        fileSystem.readFile(JSON_ORDERS_FILE, res -> {
-            if (res.succeeded()) {
-                Buffer buffer = res.result();
-                JsonArray jsonArray = buffer.toJsonArray();
-                message.reply(jsonArray);
+    private void addOrders(Message<OrderBatch> message) {
+        List<Order> orders = message.body().getOrders();
+        if (RequestTrace.isLoggable(log, message)) {
+            RequestTrace.log(log, message, "orderVerticle.addOrders: going to answer eventBus consumer, adding a batch of orders= " + orders.size());
+        }
+        if (pendingOrderIds.size() >= maxPendingOrders) {
+            if (RequestTrace.isLoggable(log, message)) {
+                RequestTrace.log(log, message, "orderVerticle.addOrders: shard overloaded, pending orders= " + pendingOrderIds.size());
+            }
+            message.fail(FAILURE_OVERLOADED, "order service overloaded");
+            return;
+        }
+        OrderResult[] results = new OrderResult[orders.size()];
+        List<Order> accepted = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            String orderId = orders.get(i).getOrderId();
+            if (OrderShards.shardOf(orderId, shards) != shard) {
+                results[i] = OrderResult.failed("order sent to the wrong shard");
+            } else if (store.contains(orderId) || !pendingOrderIds.add(orderId)) {
+                results[i] = OrderResult.failed("order already exists");
             } else {
-                message.reply("order list not found or empty");
+                accepted.add(orders.get(i));
             }
+        }
+        if (accepted.isEmpty()) {
+            message.reply(new OrderBatchResult(Arrays.asList(results)), queueDepth());
+            return;
+        }
+
+        journal.appendAll(accepted, asyncResult -> {
+            accepted.forEach(order -> pendingOrderIds.remove(order.getOrderId()));
+            OrderResult acceptedResult;
+            if (asyncResult.succeeded()) {
+                accepted.forEach(store::add);
+                version += accepted.size();
+                if (RequestTrace.isLoggable(log, message)) {
+                    RequestTrace.log(log, message, "orderVerticle.addOrders: write new orders - done, orders= " + accepted.size());
+                }
+                acceptedResult = OrderResult.succeeded("order data succeed");
+            } else {
+                RequestTrace.of(message).log(log, Level.SEVERE, "orderVerticle.addOrders: write new orders - failed, cause: " + asyncResult.cause());
+                acceptedResult = OrderResult.failed("something went wrong while writing to fileSystem");
+            }
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = acceptedResult;
+                }
+            }
+            message.reply(new OrderBatchResult(Arrays.asList(results)), queueDepth());
         });
     }
 
+    /**
+     * This method will return one page of the orders of this shard.
+     * The request holds the offset of the first order (in insertion order) and a limit, the response holds the orders
+     * of the page and the current number of orders of the shard.
+     * The response will be sent to the OrderVerticle module.
+     */
+    private void getOrders(Message<JsonObject> message) {
+        RequestTrace.log(log, message, "orderVerticle.getOrders: going to answer eventBus consumer");
+        JsonObject request = message.body();
+        int offset = request.getInteger("offset", 0);
+        int limit = request.getInteger("limit", MAX_PAGE_LIMIT);
+        if (limit < 1 || limit > MAX_PAGE_LIMIT || offset < 0) {
+            message.fail(FAILURE_BAD_REQUEST, "invalid limit or offset");
+            return;
+        }
+
+        message.reply(store.page(offset, limit), queueDepth());
+    }
+
+    /**
+     * This method will return a single order by its orderId, using the in-memory index.
+     * The response will be sent to the OrderVerticle module, a missing order fails the message with 404.
+     */
+    private void getOrder(Message<String> message) {
+        RequestTrace.log(log, message, "orderVerticle.getOrder: going to answer eventBus consumer");
+        Order order = store.get(message.body());
+        if (order != null) {
+            message.reply(order, queueDepth());
+        } else {
+            message.fail(FAILURE_NOT_FOUND, "order not found");
+        }
+    }
+
+    /**
+     * This method will return the orders of this shard in a date range and/or with a name prefix (see OrderQuery),
+     * and the number of orders per day of the date range.
+     * The query is answered from the sorted secondary indexes of the order store, its cost grows with the number of
+     * returned orders and not with the number of orders of the shard.
+     * The response will be sent to the OrderVerticle module, an invalid query fails the message with 400.
+     */
+    private void queryOrders(Message<JsonObject> message) {
+        RequestTrace.log(log, message, "orderVerticle.queryOrders: going to answer eventBus consumer");
+        OrderQuery query = OrderQuery.fromJson(message.body());
+        if (query.getLimit() < 1 || query.getLimit() > MAX_PAGE_LIMIT || (!query.isByDate() && query.getNamePrefix() == null)) {
+            message.fail(FAILURE_BAD_REQUEST, "invalid query");
+            return;
+        }
+
+        message.reply(store.query(query), queueDepth());
+    }
+
+    /**
+     * This method will return the data version of this shard, as "epoch.version".
+     * The version only grows while the verticle runs and the epoch changes when the verticle is restarted,
+     * so the same value always means the same orders.
+     */
+    private void getVersion(Message<Void> message) {
+        message.reply(epoch + "." + version, queueDepth());
+    }
+
     /**
      * Helper method to print error values in case one of the endpoints collapse, or get runtime error.
      * This method used in other methods exist in this java class, I added it for clean code.
      */
-    private void messageResponse(Message<Object> message, String errorValue, String insertValue) {
-        JsonObject jsonResult = new JsonObject();
-        jsonResult.put("error", errorValue);
-        jsonResult.put("insert", insertValue);
-        message.reply(jsonResult);
+    private void messageResponse(Message<?> message, boolean errorValue, String insertValue) {
+        message.reply(new OrderResult(errorValue, insertValue), queueDepth());
+    }
+
+    /**
+     * Helper method to create the reply options, they report the queue depth of the shard to the RestVerticle module.
+     */
+    private DeliveryOptions queueDepth() {
+        return new DeliveryOptions().addHeader(OrderShards.QUEUE_DEPTH_HEADER, String.valueOf(pendingOrderIds.size()));
     }
 }
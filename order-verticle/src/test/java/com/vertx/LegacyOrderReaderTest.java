@@ -0,0 +1,106 @@
+package com.vertx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LegacyOrderReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBothOrderIdFieldNames() throws IOException {
+        Path file = ordersFile("[{\"orderID\":\"order-1\",\"orderName\":\"first\",\"orderDate\":\"2023-04-03\"},"
+                + "{\"orderId\":\"order-2\",\"orderName\":\"second\",\"extra\":{\"nested\":[1,2]},\"orderDate\":null},"
+                + "{\"orderName\":\"no orderId\"}]");
+
+        List<Order> orders = readAll(LegacyOrderReader.open(file.toString(), 0, 1));
+
+        assertEquals(2, orders.size());
+        assertEquals(new Order("order-1", "first", "2023-04-03").toJson(), orders.get(0).toJson());
+        assertEquals(new Order("order-2", "second", null).toJson(), orders.get(1).toJson());
+    }
+
+    @Test
+    void returnsOnlyTheOrdersOfTheShard() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"orderId\":\"order-").append(i).append("\"}");
+        }
+        Path file = ordersFile(json.append("]").toString());
+
+        List<String> all = new ArrayList<>();
+        for (int shard = 0; shard < 4; shard++) {
+            for (Order order : readAll(LegacyOrderReader.open(file.toString(), shard, 4))) {
+                assertEquals(shard, OrderShards.shardOf(order.getOrderId(), 4));
+                all.add(order.getOrderId());
+            }
+        }
+        assertEquals(100, all.size());
+    }
+
+    @Test
+    void importKeepsTheFirstOrderOfAnOrderId() throws IOException {
+        Path file = ordersFile("[{\"orderId\":\"order-1\",\"orderName\":\"first\"},"
+                + "{\"orderId\":\"order-2\",\"orderName\":\"second\"},"
+                + "{\"orderId\":\"order-1\",\"orderName\":\"duplicate\"}]");
+
+        // the reader returns every order, the snapshot it is imported into keeps an orderId once
+        LegacyOrderReader reader = LegacyOrderReader.open(file.toString(), 0, 1);
+        OrderSnapshot snapshot = OrderSnapshot.write(directory, 1, reader);
+
+        assertEquals(2, snapshot.size());
+        assertEquals("first", snapshot.get(snapshot.indexOf("order-1")).getOrderName());
+        assertEquals("second", snapshot.get(snapshot.indexOf("order-2")).getOrderName());
+    }
+
+    @Test
+    void failsOnElementThatIsNotAnOrder() throws IOException {
+        Path file = ordersFile("[{\"orderId\":\"order-1\"}, 42, {\"orderId\":\"order-2\"}]");
+
+        LegacyOrderReader reader = LegacyOrderReader.open(file.toString(), 0, 1);
+        assertEquals("order-1", reader.next().getOrderId());
+        UncheckedIOException failure = assertThrows(UncheckedIOException.class, reader::hasNext);
+        assertTrue(failure.getCause().getMessage().contains("not an order object"));
+    }
+
+    @Test
+    void failsOnTruncatedFile() throws IOException {
+        Path file = ordersFile("[{\"orderId\":\"order-1\"},");
+
+        LegacyOrderReader reader = LegacyOrderReader.open(file.toString(), 0, 1);
+        assertEquals("order-1", reader.next().getOrderId());
+        assertThrows(UncheckedIOException.class, reader::hasNext);
+    }
+
+    @Test
+    void openSkipsMissingFileAndRejectsOtherJson() throws IOException {
+        assertNull(LegacyOrderReader.open(directory.resolve("missing.json").toString(), 0, 1));
+        assertThrows(IOException.class, () -> LegacyOrderReader.open(ordersFile("{\"orderId\":\"order-1\"}").toString(), 0, 1));
+        assertFalse(LegacyOrderReader.open(ordersFile("[]").toString(), 0, 1).hasNext());
+    }
+
+    private Path ordersFile(String json) throws IOException {
+        return Files.write(Files.createTempFile(directory, "orders", ".json"), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Order> readAll(LegacyOrderReader reader) {
+        List<Order> orders = new ArrayList<>();
+        reader.forEachRemaining(orders::add);
+        return orders;
+    }
+}
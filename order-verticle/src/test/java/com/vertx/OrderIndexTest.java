@@ -0,0 +1,40 @@
+package com.vertx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OrderIndexTest {
+
+    @Test
+    void prefixEndIsTheFirstNameAfterThePrefix() {
+        assertEquals("applf", OrderIndex.prefixEnd("apple"));
+        assertEquals("\u65e5\u672d", OrderIndex.prefixEnd("\u65e5\u672c"));
+        assertEquals("😁", OrderIndex.prefixEnd("😀"));
+        assertEquals("b", OrderIndex.prefixEnd("a" + new String(Character.toChars(Character.MAX_CODE_POINT))));
+        assertNull(OrderIndex.prefixEnd(new String(Character.toChars(Character.MAX_CODE_POINT))));
+        assertNull(OrderIndex.prefixEnd(""));
+    }
+
+    @Test
+    void countsByNamePrefixUpToMax() {
+        OrderIndex index = new OrderIndex();
+        index.add(new Order("order-1", "apple", null));
+        index.add(new Order("order-2", "apple", null));
+        index.add(new Order("order-3", "apples", null));
+        index.add(new Order("order-4", "applf", null));
+        index.add(new Order("order-5", "Apple", null));
+        index.add(new Order("order-6", null, null));
+        index.add(new Order("order-7", "app", null));
+
+        assertEquals(3, index.countByNamePrefix("apple", 10));
+        assertEquals(2, index.countByNamePrefix("apple", 2));
+        assertEquals(5, index.countByNamePrefix("app", 10));
+        assertEquals(6, index.countByNamePrefix("", 10));
+        assertEquals(0, index.countByNamePrefix("b", 10));
+
+        index.remove(new Order("order-3", "apples", null));
+        assertEquals(2, index.countByNamePrefix("apple", 10));
+    }
+}
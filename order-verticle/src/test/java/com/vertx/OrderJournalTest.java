@@ -0,0 +1,231 @@
+package com.vertx;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderJournalTest {
+
+    private static final long SEGMENT_MAX_BYTES = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private Vertx vertx;
+    private Context context;
+
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        BlockingSupport.<Void>await(vertx::close);
+    }
+
+    @Test
+    void replayTruncatesTornLastRecord() throws IOException {
+        OrderJournal journal = journal(0, SEGMENT_MAX_BYTES);
+        assertTrue(open(journal, 0).isEmpty());
+        appendAll(journal, List.of(order(1), order(2), order(3)));
+        close(journal);
+
+        // crash in the middle of the last write: the payload of order-3 is cut
+        Path segment = segments().get(0);
+        long completeSize = Files.size(segment) - recordBytes(order(3));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 5);
+        }
+
+        OrderJournal reopened = journal(0, SEGMENT_MAX_BYTES);
+        assertEquals(List.of("order-1", "order-2"), orderIds(open(reopened, 0)));
+        assertEquals(completeSize, Files.size(segment));
+
+        // the next appends follow the last complete record instead of being hidden behind the torn one
+        appendAll(reopened, List.of(order(4)));
+        close(reopened);
+        assertEquals(List.of("order-1", "order-2", "order-4"), orderIds(open(journal(0, SEGMENT_MAX_BYTES), 0)));
+    }
+
+    @Test
+    void replayTruncatesTornRecordHeader() throws IOException {
+        OrderJournal journal = journal(0, SEGMENT_MAX_BYTES);
+        open(journal, 0);
+        appendAll(journal, List.of(order(1)));
+        close(journal);
+
+        Path segment = segments().get(0);
+        long completeSize = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 1}));
+        }
+
+        assertEquals(List.of("order-1"), orderIds(open(journal(0, SEGMENT_MAX_BYTES), 0)));
+        assertEquals(completeSize, Files.size(segment));
+    }
+
+    @Test
+    void groupCommitCompletesAppendsInSubmissionOrder() {
+        int appends = 500;
+        OrderJournal journal = journal(5, SEGMENT_MAX_BYTES);
+        open(journal, 0);
+
+        // the appends are spread over several group commit windows, some of them arrive while a commit is in flight
+        List<Integer> submitted = new ArrayList<>();
+        List<Integer> completed = new ArrayList<>();
+        onContext(handler -> {
+            for (int i = 0; i < appends; i++) {
+                int index = i;
+                vertx.setTimer(1 + i / 25, timerId -> {
+                    submitted.add(index);
+                    journal.append(order(index), result -> {
+                        if (result.failed()) {
+                            handler.handle(Future.failedFuture(result.cause()));
+                            return;
+                        }
+                        completed.add(index);
+                        if (completed.size() == appends) {
+                            handler.handle(Future.succeededFuture());
+                        }
+                    });
+                });
+            }
+        });
+        close(journal);
+
+        assertEquals(submitted, completed);
+        List<String> expected = submitted.stream().map(index -> "order-" + index).collect(Collectors.toList());
+        assertEquals(expected, orderIds(open(journal(5, SEGMENT_MAX_BYTES), 0)));
+    }
+
+    @Test
+    void recoversAcrossSegmentRolls() throws IOException {
+        // small segments, so that the group commits roll over several of them
+        OrderJournal journal = journal(0, 4 * recordBytes(order(0)));
+        open(journal, 0);
+        for (int i = 0; i < 20; i++) {
+            appendAll(journal, List.of(order(i)));
+        }
+        long rolledSegment = this.<Long>onContext(journal::rollSegment);
+        appendAll(journal, List.of(order(20), order(21)));
+        close(journal);
+        assertTrue(segments().size() > 2);
+
+        List<String> all = IntStream.range(0, 22).mapToObj(i -> "order-" + i).collect(Collectors.toList());
+        assertEquals(all, orderIds(open(journal(0, SEGMENT_MAX_BYTES), 0)));
+
+        // a snapshot covers the segments before the rolled one: they are deleted and only the newer orders are replayed
+        OrderJournal fromSnapshot = journal(0, SEGMENT_MAX_BYTES);
+        assertEquals(List.of("order-20", "order-21"), orderIds(open(fromSnapshot, rolledSegment)));
+        assertEquals(1, segments().size());
+        close(fromSnapshot);
+    }
+
+    @Test
+    void openFailsOnCorruptedSegmentBeforeTheLastOne() throws IOException {
+        OrderJournal journal = journal(0, SEGMENT_MAX_BYTES);
+        open(journal, 0);
+        appendAll(journal, List.of(order(1), order(2)));
+        onContext(journal::rollSegment);
+        appendAll(journal, List.of(order(3)));
+        close(journal);
+
+        // only the tail of the last segment can be torn, a bad record before it is a corruption
+        Path firstSegment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(firstSegment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), OrderJournal.RECORD_HEADER_BYTES + 2);
+        }
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> open(journal(0, SEGMENT_MAX_BYTES), 0));
+        assertTrue(failure.getCause() instanceof IOException);
+    }
+
+    @Test
+    void failedWriteFailsEveryLaterAppend() throws IOException {
+        // segments of a single record: the second append rolls to segment 2, which can't be opened
+        OrderJournal journal = journal(0, recordBytes(order(1)));
+        open(journal, 0);
+        appendAll(journal, List.of(order(1)));
+        Path blocked = Files.createDirectory(directory.resolve(String.format("%s%016d%s", OrderJournal.SEGMENT_PREFIX, 2, OrderJournal.SEGMENT_SUFFIX)));
+        assertThrows(IllegalStateException.class, () -> appendAll(journal, List.of(order(2))));
+
+        // the cause is gone, the journal still refuses appends and rolls until it is opened again
+        Files.delete(blocked);
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> appendAll(journal, List.of(order(3))));
+        assertTrue(failure.getCause().getMessage().contains("must be reopened"));
+        assertThrows(IllegalStateException.class, () -> this.<Long>onContext(journal::rollSegment));
+
+        OrderJournal reopened = journal(0, SEGMENT_MAX_BYTES);
+        assertEquals(List.of("order-1"), orderIds(open(reopened, 0)));
+        appendAll(reopened, List.of(order(4)));
+        close(reopened);
+        assertEquals(List.of("order-1", "order-4"), orderIds(open(journal(0, SEGMENT_MAX_BYTES), 0)));
+    }
+
+    private OrderJournal journal(long groupCommitWindowMs, long segmentMaxBytes) {
+        return new OrderJournal(vertx, directory.toString(), groupCommitWindowMs, segmentMaxBytes, "test");
+    }
+
+    private List<Order> open(OrderJournal journal, long firstSegment) {
+        return onContext(handler -> journal.open(firstSegment, handler));
+    }
+
+    private void appendAll(OrderJournal journal, List<Order> orders) {
+        this.<Void>onContext(handler -> journal.appendAll(orders, handler));
+    }
+
+    private void close(OrderJournal journal) {
+        this.<Void>onContext(journal::close);
+    }
+
+    /**
+     * The journal must be used from a single context, like the event loop of its verticle.
+     */
+    private <T> T onContext(Consumer<Handler<AsyncResult<T>>> operation) {
+        return BlockingSupport.await(handler -> context.runOnContext(v -> operation.accept(handler)));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(OrderJournal.SEGMENT_PREFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long recordBytes(Order order) {
+        return OrderJournal.RECORD_HEADER_BYTES + order.toJson().toBuffer().length();
+    }
+
+    private static Order order(int index) {
+        return new Order("order-" + index, "order name " + index, "2023-04-03");
+    }
+
+    private static List<String> orderIds(List<Order> orders) {
+        return orders.stream().map(Order::getOrderId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,168 @@
+package com.vertx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderSnapshotTest {
+
+    private static final String[] NAMES = {"apple", "Apple", "apples", "zebra", "émile", "日本", "😀 smile", "a"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripLooksUpOrdersAndSortedSections() throws IOException {
+        List<Order> orders = randomOrders(3000, new Random(42));
+        OrderSnapshot snapshot = OrderSnapshot.write(directory, 7, orders.iterator());
+
+        assertSnapshotHolds(orders, snapshot);
+        assertEquals(7, snapshot.getCoveredSegment());
+        assertEquals(OrderSnapshot.FORMAT_VERSION, snapshot.getFormatVersion());
+        assertSnapshotHolds(orders, OrderSnapshot.openLatest(directory));
+    }
+
+    @Test
+    void emptySnapshot() throws IOException {
+        OrderSnapshot snapshot = OrderSnapshot.write(directory, 1, new ArrayList<Order>().iterator());
+
+        assertEquals(0, snapshot.size());
+        assertEquals(-1, snapshot.indexOf("order-1"));
+        assertEquals(0, snapshot.dateIndexSize());
+        assertEquals(0, snapshot.nameIndexSize());
+        assertEquals(0, snapshot.dayCountsSize());
+    }
+
+    @Test
+    void orderIdWrittenMoreThanOnceIsKeptOnce() throws IOException {
+        List<Order> orders = List.of(
+                new Order("order-1", "first", "2023-04-03"),
+                new Order("order-2", "second", null),
+                new Order("order-1", "duplicate", "2020-01-01"),
+                new Order("order-3", null, "2023-04-01"),
+                new Order("order-2", "duplicate", "2021-01-01"),
+                new Order("order-4", "fourth", "2023-04-02"));
+        OrderSnapshot snapshot = OrderSnapshot.write(directory, 1, orders.iterator());
+
+        // the first order of an orderId is kept, the next ones are dropped from the records and the sorted sections
+        List<Order> expected = List.of(orders.get(0), orders.get(1), orders.get(3), orders.get(5));
+        assertSnapshotHolds(expected, snapshot);
+        assertSnapshotHolds(expected, OrderSnapshot.openLatest(directory));
+    }
+
+    @Test
+    void rewritesFormatVersion1() throws IOException {
+        List<Order> orders = randomOrders(500, new Random(7));
+        OrderSnapshot.write(directory, 3, orders.iterator());
+        Path file = snapshotFile();
+
+        // a version 1 snapshot is the current one without the sorted sections
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(OrderSnapshot.MIN_HEADER_BYTES);
+            channel.read(header, 0);
+            int sortedSectionsOffset = header.getInt(48);
+            channel.truncate(sortedSectionsOffset);
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1), 4);
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, sortedSectionsOffset), 44);
+        }
+        OrderSnapshot v1 = OrderSnapshot.openLatest(directory);
+        assertEquals(1, v1.getFormatVersion());
+        assertEquals(0, v1.dateIndexSize());
+        assertEquals(0, v1.nameIndexSize());
+        assertEquals(orders.get(0).toJson(), v1.get(0).toJson());
+
+        OrderSnapshot rewritten = OrderSnapshot.write(directory, v1.getCoveredSegment(), v1.iterator());
+
+        assertEquals(OrderSnapshot.FORMAT_VERSION, rewritten.getFormatVersion());
+        assertEquals(3, rewritten.getCoveredSegment());
+        assertSnapshotHolds(orders, rewritten);
+        assertSnapshotHolds(orders, OrderSnapshot.openLatest(directory));
+    }
+
+    /**
+     * Random orders with unique orderIds, names shared by several orders and sometimes null, dates of a few days.
+     */
+    static List<Order> randomOrders(int count, Random random) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String orderName = random.nextInt(10) == 0 ? null : NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(20);
+            String orderDate = random.nextInt(10) == 0 ? null
+                    : random.nextBoolean() ? "2023-04-0" + (1 + random.nextInt(9))
+                    : "2023-04-0" + (1 + random.nextInt(9)) + "T" + (10 + random.nextInt(10)) + ":15:00Z";
+            orders.add(new Order("order-" + random.nextInt(Integer.MAX_VALUE) + "-" + i, orderName, orderDate));
+        }
+        return orders;
+    }
+
+    private static void assertSnapshotHolds(List<Order> orders, OrderSnapshot snapshot) {
+        assertEquals(orders.size(), snapshot.size());
+        for (int i = 0; i < orders.size(); i++) {
+            assertEquals(orders.get(i).toJson(), snapshot.get(i).toJson());
+            assertEquals(i, snapshot.indexOf(orders.get(i).getOrderId()));
+        }
+        assertEquals(-1, snapshot.indexOf("missing"));
+        List<String> iterated = new ArrayList<>();
+        for (Iterator<Order> iterator = snapshot.iterator(); iterator.hasNext(); ) {
+            iterated.add(iterator.next().getOrderId());
+        }
+        assertEquals(orderIds(orders), iterated);
+
+        Comparator<Order> byOrderId = (first, second) -> OrderQuery.compareCodePoints(first.getOrderId(), second.getOrderId());
+        List<Order> dated = orders.stream()
+                .filter(order -> order.getOrderDate() != null)
+                .sorted(Comparator.comparing((Order order) -> OrderQuery.dateKey(order.getOrderDate())).thenComparing(byOrderId))
+                .collect(Collectors.toList());
+        assertEquals(dated.size(), snapshot.dateIndexSize());
+        for (int entry = 0; entry < dated.size(); entry++) {
+            assertEquals(dated.get(entry).toJson(), snapshot.dateOrderAt(entry).toJson());
+            assertEquals((long) OrderQuery.dateKey(dated.get(entry).getOrderDate()), snapshot.dateKeyAt(entry));
+        }
+
+        List<Order> named = orders.stream()
+                .filter(order -> order.getOrderName() != null)
+                .sorted(((Comparator<Order>) (first, second) -> OrderQuery.compareCodePoints(first.getOrderName(), second.getOrderName()))
+                        .thenComparing(byOrderId))
+                .collect(Collectors.toList());
+        assertEquals(named.size(), snapshot.nameIndexSize());
+        for (int entry = 0; entry < named.size(); entry++) {
+            assertEquals(named.get(entry).toJson(), snapshot.nameOrderAt(entry).toJson());
+        }
+
+        List<Long> days = dated.stream().map(order -> OrderQuery.epochDay(OrderQuery.dateKey(order.getOrderDate())))
+                .distinct().collect(Collectors.toList());
+        assertEquals(days.size(), snapshot.dayCountsSize());
+        for (int entry = 0; entry < days.size(); entry++) {
+            long day = days.get(entry);
+            assertEquals(day, snapshot.dayAt(entry));
+            assertEquals(dated.stream().filter(order -> OrderQuery.epochDay(OrderQuery.dateKey(order.getOrderDate())) == day).count(),
+                    snapshot.dayCountAt(entry));
+        }
+    }
+
+    private Path snapshotFile() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(OrderSnapshot.SNAPSHOT_SUFFIX))
+                    .findFirst()
+                    .orElseThrow();
+        }
+    }
+
+    private static List<String> orderIds(List<Order> orders) {
+        return orders.stream().map(Order::getOrderId).collect(Collectors.toList());
+    }
+}
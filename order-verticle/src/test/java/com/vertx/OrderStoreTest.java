@@ -0,0 +1,120 @@
+package com.vertx;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderStoreTest {
+
+    private static final int SNAPSHOT_ORDERS = 2000;
+    private static final int PAGE_SIZE = 7;
+
+    @TempDir
+    Path directory;
+
+    private final List<Order> orders = OrderSnapshotTest.randomOrders(3000, new Random(11));
+    private OrderStore store;
+
+    /**
+     * The store holds a snapshot of the first orders and the next ones in its index, so every query merges both.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new OrderStore();
+        orders.forEach(store::add);
+        OrderSnapshot snapshot = OrderSnapshot.write(directory, 1, store.unsnapshotOrders(SNAPSHOT_ORDERS).iterator());
+        store.installSnapshot(snapshot, SNAPSHOT_ORDERS);
+        assertEquals(orders.size() - SNAPSHOT_ORDERS, store.unsnapshotSize());
+    }
+
+    @Test
+    void pagesByDateRange() {
+        assertPagesMatch(new OrderQuery(OrderQuery.dateKey("2023-04-02"), OrderQuery.dateEndKey("2023-04-05"), null, PAGE_SIZE, null));
+        assertPagesMatch(new OrderQuery(null, OrderQuery.dateEndKey("2023-04-03"), null, PAGE_SIZE, null));
+    }
+
+    @Test
+    void pagesByNamePrefix() {
+        assertPagesMatch(new OrderQuery(null, null, "apple", PAGE_SIZE, null));
+        assertPagesMatch(new OrderQuery(null, null, "日", PAGE_SIZE, null));
+        assertPagesMatch(new OrderQuery(null, null, "", PAGE_SIZE, null));
+    }
+
+    @Test
+    void pagesByDateRangeAndNamePrefixReadingTheDateIndex() {
+        // a single day holds fewer orders than the names starting with "a": the date index is read in order
+        assertPagesMatch(new OrderQuery(OrderQuery.dateKey("2023-04-04"), OrderQuery.dateEndKey("2023-04-04"), "a", PAGE_SIZE, null));
+    }
+
+    @Test
+    void pagesByDateRangeAndNamePrefixReadingTheNameIndex() {
+        // the names starting with "zebra 1" are fewer than the orders of the whole range: the name index is read
+        assertPagesMatch(new OrderQuery(OrderQuery.dateKey("2023-04-01"), OrderQuery.dateEndKey("2023-04-09"), "zebra 1", PAGE_SIZE, null));
+        assertPagesMatch(new OrderQuery(OrderQuery.dateKey("2023-04-01"), OrderQuery.dateEndKey("2023-04-09"), "😀", PAGE_SIZE, null));
+    }
+
+    @Test
+    void cursorOutsideOfTheRangeStartsAtTheRange() {
+        Order before = new Order("order-0", "Apple", "2023-03-01");
+        assertPagesMatch(new OrderQuery(OrderQuery.dateKey("2023-04-05"), OrderQuery.dateEndKey("2023-04-06"), null, PAGE_SIZE, before));
+        assertPagesMatch(new OrderQuery(null, null, "apple", PAGE_SIZE, before));
+    }
+
+    /**
+     * This method reads every page of the query and compares them with the matching orders, sorted in the order of the query.
+     */
+    private void assertPagesMatch(OrderQuery query) {
+        List<Order> expected = orders.stream()
+                .filter(query::matches)
+                .filter(query::isAfterCursor)
+                .sorted(query.comparator())
+                .collect(Collectors.toList());
+        assertTrue(expected.size() > PAGE_SIZE, "too few matches to page: " + expected.size());
+
+        List<Order> paged = new ArrayList<>();
+        OrderQuery page = query;
+        while (true) {
+            OrderQueryResult result = store.query(page);
+            assertTrue(result.getOrders().size() <= PAGE_SIZE);
+            paged.addAll(result.getOrders());
+            assertEquals(expectedCountsByDay(query), result.getCountsByDay());
+            if (result.getOrders().size() < PAGE_SIZE) {
+                break;
+            }
+            page = query.after(result.getOrders().get(PAGE_SIZE - 1));
+        }
+        assertEquals(orderIds(expected), orderIds(paged));
+    }
+
+    private SortedMap<Long, Integer> expectedCountsByDay(OrderQuery query) {
+        SortedMap<Long, Integer> countsByDay = new TreeMap<>();
+        if (!query.isByDate()) {
+            return countsByDay;
+        }
+        for (Order order : orders) {
+            Long dateKey = OrderQuery.dateKey(order.getOrderDate());
+            long fromDay = OrderQuery.epochDay(query.getFromKey());
+            long toDay = OrderQuery.epochDay(query.getToKey());
+            if (dateKey != null && OrderQuery.epochDay(dateKey) >= fromDay && OrderQuery.epochDay(dateKey) <= toDay) {
+                countsByDay.merge(OrderQuery.epochDay(dateKey), 1, Integer::sum);
+            }
+        }
+        return countsByDay;
+    }
+
+    private static List<String> orderIds(List<Order> orders) {
+        return orders.stream().map(Order::getOrderId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,260 @@
+package com.vertx;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.JsonEventType;
+import io.vertx.core.parsetools.JsonParser;
+import io.vertx.core.parsetools.RecordParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Streaming ingestion of the orders of a single POST /add-orders request.
+ * The body (a JSON array or NDJSON, one order per line) is parsed and validated incrementally while it is received.
+ * Valid orders are grouped by shard and forwarded to the OrderVerticle module in bounded batches,
+ * and the request is paused while too many batches are in flight, so the orders waiting for their batch stay bounded.
+ * The per order results are not: one small JSON object per order of the body is kept until the end of the body,
+ * as the response holds them all, in the order of the request body, after the accepted and rejected counts.
+ * The handler receives these results once every batch is answered. A batch that is not admitted by the
+ * saturated order service (see OrderClient.isOverloaded()) rejects its orders, the other batches are still sent, and the
+ * ingestion fails with an IngestionException caused by the overload once every batch is answered.
+ */
+public class BulkOrderIngestion {
+
+    private static final Logger log = Logger.getLogger(BulkOrderIngestion.class.getPackageName());
+
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+    public static final Integer BATCH_SIZE = 500;
+    public static final Integer MAX_BATCHES_IN_FLIGHT = 4;
+
+    private final OrderClient orderClient;
+    private final HttpServerRequest request;
+    private final RequestTrace trace;
+    private final Handler<AsyncResult<JsonObject>> handler;
+
+    private final List<List<Order>> shardBatches = new ArrayList<>();
+    private final List<List<Integer>> shardIndexes = new ArrayList<>();
+    // one entry per order read, kept for the response, it grows with the number of orders of the body
+    private final List<JsonObject> results = new ArrayList<>();
+    private int accepted;
+    private int rejected;
+    private int batchesInFlight;
+    private boolean paused;
+    private boolean ended;
+    private boolean completed;
+    private Throwable parseFailure;
+    private Throwable overload;
+
+    public BulkOrderIngestion(OrderClient orderClient, HttpServerRequest request, RequestTrace trace, Handler<AsyncResult<JsonObject>> handler) {
+        this.orderClient = orderClient;
+        this.request = request;
+        this.trace = trace;
+        this.handler = handler;
+        for (int shard = 0; shard < orderClient.shards(); shard++) {
+            shardBatches.add(new ArrayList<>());
+            shardIndexes.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * This method starts reading the request body, NDJSON is used when the content-type is application/x-ndjson.
+     */
+    public void start() {
+        String contentType = request.getHeader("content-type");
+        if (contentType != null && contentType.startsWith(NDJSON_CONTENT_TYPE)) {
+            RecordParser recordParser = RecordParser.newDelimited("\n", this::handleLine);
+            request.handler(recordParser);
+            request.endHandler(v -> {
+                // the last line may not end with a new line
+                recordParser.handle(Buffer.buffer("\n"));
+                handleEnd();
+            });
+        } else {
+            JsonParser jsonParser = JsonParser.newParser().objectValueMode();
+            jsonParser.handler(event -> {
+                if (event.type() == JsonEventType.VALUE) {
+                    handleOrder(event.value());
+                }
+            });
+            jsonParser.exceptionHandler(this::handleParseFailure);
+            request.handler(buffer -> {
+                if (parseFailure == null) {
+                    jsonParser.handle(buffer);
+                }
+            });
+            request.endHandler(v -> {
+                if (parseFailure == null) {
+                    jsonParser.end();
+                }
+                handleEnd();
+            });
+        }
+        request.exceptionHandler(this::handleParseFailure);
+        request.resume();
+    }
+
+    private void handleLine(Buffer line) {
+        String value = line.toString().trim();
+        if (value.isEmpty()) {
+            return;
+        }
+        JsonObject json;
+        try {
+            json = new JsonObject(value);
+        } catch (DecodeException e) {
+            results.add(null);
+            reject(results.size() - 1, null, "invalid JSON line");
+            return;
+        }
+        handleOrder(json);
+    }
+
+    private void handleOrder(Object value) {
+        int index = results.size();
+        results.add(null);
+        if (!(value instanceof JsonObject)) {
+            reject(index, null, "order must be a JSON object");
+            return;
+        }
+        JsonObject json = (JsonObject) value;
+        Object orderId = json.getValue("orderID");
+        if (!(orderId instanceof String) || ((String) orderId).isEmpty()) {
+            reject(index, null, "orderID is missing");
+            return;
+        }
+        if (!isOptionalString(json.getValue("orderName")) || !isOptionalString(json.getValue("orderDate"))) {
+            reject(index, (String) orderId, "orderName and orderDate must be strings");
+            return;
+        }
+
+        Order order = new Order((String) orderId, json.getString("orderName"), json.getString("orderDate"));
+        int shard = OrderShards.shardOf(order.getOrderId(), orderClient.shards());
+        shardBatches.get(shard).add(order);
+        shardIndexes.get(shard).add(index);
+        if (shardBatches.get(shard).size() >= BATCH_SIZE) {
+            flush(shard);
+        }
+    }
+
+    private void handleParseFailure(Throwable cause) {
+        if (parseFailure == null) {
+            if (trace.isLoggable(log)) {
+                trace.log(log, "bulkOrderIngestion.handleParseFailure: invalid request body, cause: " + cause.getMessage());
+            }
+            parseFailure = cause;
+            handleEnd();
+        }
+    }
+
+    private void handleEnd() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        // a batch that is not admitted fails at once, the guard keeps the ingestion from completing before the last batch is sent
+        batchesInFlight++;
+        for (int shard = 0; shard < shardBatches.size(); shard++) {
+            if (!shardBatches.get(shard).isEmpty()) {
+                flush(shard);
+            }
+        }
+        batchesInFlight--;
+        complete();
+    }
+
+    private void flush(int shard) {
+        List<Order> orders = shardBatches.get(shard);
+        List<Integer> indexes = shardIndexes.get(shard);
+        shardBatches.set(shard, new ArrayList<>());
+        shardIndexes.set(shard, new ArrayList<>());
+
+        batchesInFlight++;
+        if (batchesInFlight >= MAX_BATCHES_IN_FLIGHT && !ended && !paused) {
+            paused = true;
+            request.pause();
+        }
+        orderClient.addOrders(shard, new OrderBatch(orders), trace, asyncResult -> {
+            batchesInFlight--;
+            if (asyncResult.failed() && overload == null && OrderClient.isOverloaded(asyncResult.cause())) {
+                overload = asyncResult.cause();
+            }
+            for (int i = 0; i < orders.size(); i++) {
+                String orderId = orders.get(i).getOrderId();
+                if (asyncResult.failed()) {
+                    reject(indexes.get(i), orderId, asyncResult.cause().getMessage());
+                    continue;
+                }
+                OrderResult result = asyncResult.result().body().getResults().get(i);
+                if (result.isError()) {
+                    reject(indexes.get(i), orderId, result.getMessage());
+                } else {
+                    accepted++;
+                    results.set(indexes.get(i), result(orderId, result));
+                }
+            }
+            if (paused && batchesInFlight < MAX_BATCHES_IN_FLIGHT) {
+                paused = false;
+                request.resume();
+            }
+            complete();
+        });
+    }
+
+    private void reject(int index, String orderId, String message) {
+        rejected++;
+        results.set(index, result(orderId, OrderResult.failed(message)));
+    }
+
+    private void complete() {
+        if (!ended || batchesInFlight > 0 || completed) {
+            return;
+        }
+        completed = true;
+        JsonObject summary = new JsonObject()
+                .put("accepted", accepted)
+                .put("rejected", rejected)
+                .put("results", new JsonArray(results));
+        if (parseFailure != null) {
+            summary.put("error", "invalid request body: " + parseFailure.getMessage());
+            handler.handle(Future.failedFuture(new IngestionException(summary, null)));
+        } else if (overload != null) {
+            summary.put("error", "order service overloaded: " + overload.getMessage());
+            handler.handle(Future.failedFuture(new IngestionException(summary, overload)));
+        } else {
+            handler.handle(Future.succeededFuture(summary));
+        }
+    }
+
+    private static JsonObject result(String orderId, OrderResult result) {
+        return result.toJson().put("orderID", orderId);
+    }
+
+    private static boolean isOptionalString(Object value) {
+        return value == null || value instanceof String;
+    }
+
+    /**
+     * Failure of an ingestion whose body could not be parsed (no cause) or whose orders were not all admitted by the
+     * saturated order service (the cause is the overload), it still holds the results of every order that was read.
+     */
+    public static class IngestionException extends RuntimeException {
+        private final JsonObject summary;
+
+        public IngestionException(JsonObject summary, Throwable cause) {
+            super(summary.getString("error"), cause);
+            this.summary = summary;
+        }
+
+        public JsonObject getSummary() {
+            return summary;
+        }
+    }
+}
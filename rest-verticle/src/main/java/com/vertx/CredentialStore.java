@@ -0,0 +1,224 @@
+package com.vertx;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * Cached credential index of the users saved in the local JSON file.
+ * The file is loaded once into a hash map keyed by username that holds salted PBKDF2 password hashes,
+ * and it is reloaded (and the map swapped atomically) whenever the file changes.
+ * All the hashing runs on a dedicated worker pool (credential-hash), so it never stalls the HTTP event loop and a login
+ * spike does not delay the journal commits and snapshot writes that run on the default worker pool.
+ * The RestVerticle instances of a Vert.x instance share a single store (see shared()), so the users are hashed once
+ * and a single watcher checks the file.
+ */
+public class CredentialStore implements Shareable {
+
+    private static final Logger log = Logger.getLogger(CredentialStore.class.getPackageName());
+
+    public static final String HASH_ALGORITHM = "PBKDF2WithHmacSHA256";
+    public static final int HASH_ITERATIONS = 10000;
+    public static final int HASH_BITS = 256;
+    public static final int SALT_BYTES = 16;
+    public static final String SHARED_STORES_MAP = "credentialStores";
+    public static final String HASH_POOL_NAME = "credential-hash";
+    public static final int HASH_POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final Credential missingUser = newCredential("missing-user-password");
+
+    private final Vertx vertx;
+    private final String usersFile;
+    private final WorkerExecutor hashExecutor;
+
+    private volatile Map<String, Credential> credentials;
+    private long lastModifiedTime = -1;
+    private long watchTimerId = -1;
+    private boolean reloading;
+    private final CompletableFuture<Void> firstLoad = new CompletableFuture<>();
+    private int references;
+
+    public CredentialStore(Vertx vertx, String usersFile) {
+        this.vertx = vertx;
+        this.usersFile = usersFile;
+        this.hashExecutor = vertx.createSharedWorkerExecutor(HASH_POOL_NAME, HASH_POOL_SIZE);
+    }
+
+    /**
+     * This method returns the store of the users file shared by the verticles of this Vert.x instance (a local map).
+     * The first caller creates the store, loads the users and watches the file from its context (the watcher stops with
+     * the verticle that created the store, the instances of a deployment start and stop together), the next callers reuse it.
+     * The handler is called on the caller's context once the first load is done; if it failed, login fails until the
+     * file is readable. Every caller must release() the store when it stops.
+     */
+    public static void shared(Vertx vertx, String usersFile, long watchIntervalMs, Handler<CredentialStore> handler) {
+        Context context = vertx.getOrCreateContext();
+        LocalMap<String, CredentialStore> stores = vertx.sharedData().getLocalMap(SHARED_STORES_MAP);
+        boolean[] created = {false};
+        CredentialStore store = stores.compute(usersFile, (file, current) -> {
+            CredentialStore shared = current;
+            if (shared == null) {
+                shared = new CredentialStore(vertx, file);
+                created[0] = true;
+            }
+            shared.references++;
+            return shared;
+        });
+        if (created[0]) {
+            store.load(loadResult -> {
+                if (loadResult.failed()) {
+                    log.info("credentialStore.shared: users not loaded, login will fail until " + usersFile + " is readable");
+                }
+                store.watch(watchIntervalMs);
+                store.firstLoad.complete(null);
+            });
+        }
+        store.firstLoad.thenRun(() -> context.runOnContext(v -> handler.handle(store)));
+    }
+
+    /**
+     * This method releases a store returned by shared(), the last release stops the watcher and removes the store.
+     */
+    public void release() {
+        boolean[] unused = {false};
+        vertx.sharedData().<String, CredentialStore>getLocalMap(SHARED_STORES_MAP).computeIfPresent(usersFile, (file, current) -> {
+            if (current != this || --references > 0) {
+                return current;
+            }
+            unused[0] = true;
+            return null;
+        });
+        if (unused[0]) {
+            close();
+        }
+    }
+
+    /**
+     * This method reads the users file, hashes every password on the credential-hash pool and swaps the credential map.
+     */
+    public void load(Handler<AsyncResult<Void>> handler) {
+        vertx.fileSystem().props(usersFile, propsResult -> {
+            long modifiedTime = propsResult.succeeded() ? propsResult.result().lastModifiedTime() : -1;
+            vertx.fileSystem().readFile(usersFile, readResult -> {
+                if (readResult.failed()) {
+                    log.info("credentialStore.load: can't find/ can't read from " + usersFile);
+                    handler.handle(Future.failedFuture(readResult.cause()));
+                    return;
+                }
+                Buffer buffer = readResult.result();
+                hashExecutor.<Map<String, Credential>>executeBlocking(promise -> {
+                    Map<String, Credential> loaded = new HashMap<>();
+                    for (Object user : buffer.toJsonArray()) {
+                        JsonObject jsonUser = (JsonObject) user;
+                        loaded.put(jsonUser.getString("username"), newCredential(jsonUser.getString("password")));
+                    }
+                    promise.complete(Collections.unmodifiableMap(loaded));
+                }, false, hashResult -> {
+                    if (hashResult.succeeded()) {
+                        credentials = hashResult.result();
+                        lastModifiedTime = modifiedTime;
+                        log.info("credentialStore.load: users loaded= " + credentials.size());
+                        handler.handle(Future.succeededFuture());
+                    } else {
+                        log.info("credentialStore.load: invalid users file " + usersFile + " cause: " + hashResult.cause());
+                        handler.handle(Future.failedFuture(hashResult.cause()));
+                    }
+                });
+            });
+        });
+    }
+
+    /**
+     * This method checks the users file every intervalMs and reloads it once its modification time changes.
+     * The ticks are skipped while a reload is in flight, a slow reload (many users to hash) never overlaps the next one.
+     */
+    public void watch(long intervalMs) {
+        watchTimerId = vertx.setPeriodic(intervalMs, timerId -> {
+            if (reloading) {
+                return;
+            }
+            reloading = true;
+            vertx.fileSystem().props(usersFile, propsResult -> {
+                if (propsResult.failed() || propsResult.result().lastModifiedTime() == lastModifiedTime) {
+                    reloading = false;
+                    return;
+                }
+                log.info("credentialStore.watch: " + usersFile + " changed, going to reload");
+                load(loadResult -> reloading = false);
+            });
+        });
+    }
+
+    /**
+     * This method stops the watcher and releases the credential-hash pool (it is closed with its last user).
+     */
+    public void close() {
+        if (watchTimerId != -1) {
+            vertx.cancelTimer(watchTimerId);
+        }
+        hashExecutor.close();
+    }
+
+    /**
+     * This method checks the username and password against the cached credentials.
+     * An unknown username is still hashed so that the response time does not reveal which users exist.
+     * The handler fails if the users file was never loaded.
+     */
+    public void verify(String username, String password, Handler<AsyncResult<Boolean>> handler) {
+        Map<String, Credential> current = credentials;
+        if (current == null) {
+            handler.handle(Future.failedFuture("users are not loaded"));
+            return;
+        }
+        Credential credential = current.get(username);
+        hashExecutor.<Boolean>executeBlocking(promise -> {
+            Credential expected = credential != null ? credential : missingUser;
+            byte[] actualHash = hash(password, expected.salt);
+            promise.complete(credential != null && MessageDigest.isEqual(expected.hash, actualHash));
+        }, false, handler);
+    }
+
+    private static Credential newCredential(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return new Credential(salt, hash(password, salt));
+    }
+
+    private static byte[] hash(String password, byte[] salt) {
+        try {
+            PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, HASH_ITERATIONS, HASH_BITS);
+            return SecretKeyFactory.getInstance(HASH_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Credential {
+        private final byte[] salt;
+        private final byte[] hash;
+
+        private Credential(byte[] salt, byte[] hash) {
+            this.salt = salt;
+            this.hash = hash;
+        }
+    }
+}
@@ -1,66 +1,50 @@
 package com.vertx;
 
-import com.hazelcast.config.Config;
 import io.vertx.core.*;
-import io.vertx.core.eventbus.EventBusOptions;
-import io.vertx.core.spi.cluster.ClusterManager;
-import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
 
-import java.net.InetAddress;
-import java.net.NetworkInterface;
-import java.net.SocketException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class Main {
 
     private static final Logger log = Logger.getLogger(Main.class.getPackageName());
 
+    public static final String REST_INSTANCES_PROPERTY = "rest.instances";
+
     /**
      * To run the application in a cluster mode, the main class will use Vert.x implementation of Hazelcast as a cluster manager.
-     * This method will generate the hazelcast configuration and set the destination address.
+     * The hazelcast configuration and the cluster address are created by ClusterConfig (-Dcluster.members, -Dcluster.host).
+     * The RestVerticle is deployed once per core by default (the -Drest.instances system property overrides it),
+     * all the instances share the HTTP port and the sessions are kept in the cluster.
+     * The metrics are exposed on http://localhost:9090/metrics, apart from the public HTTP port (-Dmetrics.port and -Dmetrics.host override it).
+     * The logs are written by an AsyncLogHandler, so the event loops never wait for the console.
+     * The time to join the cluster and to deploy the verticles is logged.
      */
     public static void main(String[] args) {
-        log.info("RestVerticle Module= main.main: going to create and use new instance of Hazelcast Config object");
-        Config config = new Config();
-        ClusterManager mgr = new HazelcastClusterManager(config);
-
-        log.info("RestVerticle Module= main.main: going to set cluster address to EventBusOptions Object");
-        VertxOptions options = new VertxOptions().setClusterManager(mgr);
-        EventBusOptions eventBusOptions = new EventBusOptions().setHost(getAddress()).setClustered(true);
-        options.setEventBusOptions(eventBusOptions);
+        AsyncLogHandler.install();
+        long startTime = System.nanoTime();
+        log.info("RestVerticle Module= main.main: going to create the cluster options");
+        Integer metricsPort = Integer.getInteger(AppMetrics.METRICS_PORT_PROPERTY, AppMetrics.DEFAULT_REST_METRICS_PORT);
+        VertxOptions options = ClusterConfig.clusteredOptions().setMetricsOptions(AppMetrics.metricsOptions(metricsPort));
 
-        log.info("RestVerticle Module= main.main: address set successfully  to= " + getAddress());
         Vertx.clusteredVertx(options, result -> {
-            if (result.succeeded()) {
-                log.info("RestVerticle Module= main.main: going to deployVerticle()");
-                result.result().deployVerticle(RestVerticle.class, new DeploymentOptions());
+            if (result.failed()) {
+                log.info("RestVerticle Module= main.main: can't join the cluster, cause: " + result.cause());
+                return;
             }
+            long clusterTime = System.nanoTime();
+            log.info("RestVerticle Module= main.main: cluster joined, ms= " + TimeUnit.NANOSECONDS.toMillis(clusterTime - startTime));
+            int instances = Integer.getInteger(REST_INSTANCES_PROPERTY, Runtime.getRuntime().availableProcessors());
+            log.info("RestVerticle Module= main.main: going to deployVerticle(), instances= " + instances);
+            result.result().deployVerticle(RestVerticle.class.getName(), new DeploymentOptions().setInstances(instances), deployResult -> {
+                if (deployResult.failed()) {
+                    log.info("RestVerticle Module= main.main: deployVerticle failed, cause: " + deployResult.cause());
+                    return;
+                }
+                long now = System.nanoTime();
+                log.info("RestVerticle Module= main.main: verticles deployed, ms= " + TimeUnit.NANOSECONDS.toMillis(now - clusterTime)
+                        + " startup ms= " + TimeUnit.NANOSECONDS.toMillis(now - startTime));
+            });
         });
     }
-
-    /**
-     * This method will use the NetworkInterface to locate and filter the IP addresses.
-     * The relevant IP address will be sent back to the main method.
-     */
-    private static String getAddress() {
-        try {
-            log.info("RestVerticle Module= main.getAddress: going to use NetworkInterface to locate the addresses");
-            List<NetworkInterface> networkInterfaces = new ArrayList<>();
-            NetworkInterface.getNetworkInterfaces()
-                    .asIterator().forEachRemaining(networkInterfaces::add);
-
-            log.info("RestVerticle Module= main.getAddress: going to filter the addresses");
-            return networkInterfaces.stream()
-                    .flatMap(result -> result.inetAddresses()
-                            .filter(entry -> entry.getAddress().length == 4)
-                            .filter(entry -> !entry.isLoopbackAddress())
-                            .filter(entry -> entry.getAddress()[0] != Integer.valueOf(10).byteValue())
-                            .map(InetAddress::getHostAddress))
-                    .findFirst().orElse(null);
-        } catch (SocketException e) {
-            return null;
-        }
-    }
 }
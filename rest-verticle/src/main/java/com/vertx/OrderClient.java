@@ -0,0 +1,535 @@
+package com.vertx;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Event Bus client of the sharded OrderVerticle instances.
+ * Single order requests are routed to the shard that owns the orderId,
+ * order list requests and order queries are scattered to all the shards and their pages are merged.
+ * <p>
+ * The client also does the admission control of its RestVerticle instance: at most order.maxInFlight Event Bus
+ * requests are outstanding, every address has its own timeout (order.timeoutMs.addOrder, ...) and new orders
+ * are not sent to a shard whose last reported queue depth is above order.maxQueueDepth.
+ * A request that is not admitted fails at once with an OverloadedException, instead of waiting in a queue.
+ * Every request carries the RequestTrace headers of the HTTP request it belongs to.
+ */
+public class OrderClient {
+
+    private static final Logger log = Logger.getLogger(OrderClient.class.getPackageName());
+
+    public static final String MAX_IN_FLIGHT_PROPERTY = "order.maxInFlight";
+    public static final Integer DEFAULT_MAX_IN_FLIGHT = 256;
+    public static final String MAX_QUEUE_DEPTH_PROPERTY = "order.maxQueueDepth";
+    public static final Integer DEFAULT_MAX_QUEUE_DEPTH = 2000;
+    public static final String TIMEOUT_PROPERTY_PREFIX = "order.timeoutMs.";
+    public static final Long DEFAULT_ADD_ORDER_TIMEOUT_MS = 2000L;
+    public static final Long DEFAULT_ADD_ORDERS_TIMEOUT_MS = 10000L;
+    public static final Long DEFAULT_GET_ORDER_TIMEOUT_MS = 1000L;
+    public static final Long DEFAULT_GET_ORDERS_TIMEOUT_MS = 2000L;
+    public static final Long DEFAULT_GET_VERSION_TIMEOUT_MS = 1000L;
+    public static final Long DEFAULT_QUERY_ORDERS_TIMEOUT_MS = 2000L;
+    public static final Long QUEUE_DEPTH_MAX_AGE_MS = 1000L;
+    public static final Integer RETRY_AFTER_SECONDS = 1;
+
+    private final Vertx vertx;
+    private final int shards;
+    private final int maxInFlight = Integer.getInteger(MAX_IN_FLIGHT_PROPERTY, DEFAULT_MAX_IN_FLIGHT);
+    private final int maxQueueDepth = Integer.getInteger(MAX_QUEUE_DEPTH_PROPERTY, DEFAULT_MAX_QUEUE_DEPTH);
+    private final int[] queueDepths;
+    private final long[] queueDepthTimes;
+    private int inFlight;
+
+    private final DeliveryOptions addOrderOptions = deliveryOptions(OrderShards.ADD_ORDER_ADDRESS, DEFAULT_ADD_ORDER_TIMEOUT_MS);
+    private final DeliveryOptions addOrdersOptions = deliveryOptions(OrderShards.ADD_ORDERS_ADDRESS, DEFAULT_ADD_ORDERS_TIMEOUT_MS);
+    private final DeliveryOptions getOrderOptions = deliveryOptions(OrderShards.GET_ORDER_ADDRESS, DEFAULT_GET_ORDER_TIMEOUT_MS);
+    private final DeliveryOptions getOrdersOptions = deliveryOptions(OrderShards.GET_ORDERS_ADDRESS, DEFAULT_GET_ORDERS_TIMEOUT_MS);
+    private final DeliveryOptions getVersionOptions = deliveryOptions(OrderShards.GET_VERSION_ADDRESS, DEFAULT_GET_VERSION_TIMEOUT_MS);
+    private final DeliveryOptions queryOrdersOptions = deliveryOptions(OrderShards.QUERY_ORDERS_ADDRESS, DEFAULT_QUERY_ORDERS_TIMEOUT_MS);
+    private final Counter inFlightRejections = AppMetrics.counter("order.admission.rejected", "reason", "inFlight");
+    private final Counter queueDepthRejections = AppMetrics.counter("order.admission.rejected", "reason", "queueDepth");
+
+    private final RequestMetrics addOrderMetrics = new RequestMetrics(OrderShards.ADD_ORDER_ADDRESS);
+    private final RequestMetrics addOrdersMetrics = new RequestMetrics(OrderShards.ADD_ORDERS_ADDRESS);
+    private final RequestMetrics getOrderMetrics = new RequestMetrics(OrderShards.GET_ORDER_ADDRESS);
+    private final RequestMetrics getOrdersMetrics = new RequestMetrics(OrderShards.GET_ORDERS_ADDRESS);
+    private final RequestMetrics getVersionMetrics = new RequestMetrics(OrderShards.GET_VERSION_ADDRESS);
+    private final RequestMetrics queryOrdersMetrics = new RequestMetrics(OrderShards.QUERY_ORDERS_ADDRESS);
+
+    public OrderClient(Vertx vertx, int shards) {
+        this.vertx = vertx;
+        this.shards = shards;
+        this.queueDepths = new int[shards];
+        this.queueDepthTimes = new long[shards];
+    }
+
+    /**
+     * This method sends a new order to the shard that owns its orderID.
+     */
+    public void addOrder(Order order, RequestTrace trace, Handler<AsyncResult<Message<OrderResult>>> handler) {
+        int shard = OrderShards.shardOf(order.getOrderId(), shards);
+        if (admitWrite(shard, handler)) {
+            vertx.eventBus().request(OrderShards.address(OrderShards.ADD_ORDER_ADDRESS, shard), order, traced(addOrderOptions, trace),
+                    addOrderMetrics.measure(track(shard, handler)));
+        }
+    }
+
+    /**
+     * This method sends a batch of new orders to the given shard, all of them must belong to that shard.
+     */
+    public void addOrders(int shard, OrderBatch batch, RequestTrace trace, Handler<AsyncResult<Message<OrderBatchResult>>> handler) {
+        if (admitWrite(shard, handler)) {
+            vertx.eventBus().request(OrderShards.address(OrderShards.ADD_ORDERS_ADDRESS, shard), batch, traced(addOrdersOptions, trace),
+                    addOrdersMetrics.measure(track(shard, handler)));
+        }
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    /**
+     * This method requests a single order from the shard that owns the orderId.
+     */
+    public void getOrder(String orderId, RequestTrace trace, Handler<AsyncResult<Message<Order>>> handler) {
+        int shard = OrderShards.shardOf(orderId, shards);
+        if (admit(1, handler)) {
+            vertx.eventBus().request(OrderShards.address(OrderShards.GET_ORDER_ADDRESS, shard), orderId, traced(getOrderOptions, trace),
+                    getOrderMetrics.measure(track(shard, handler)));
+        }
+    }
+
+    /**
+     * This method requests one page of orders from every shard and merges them into a single page.
+     * Every shard is asked for its share of the limit (limit / shards, rounded up), the shards that still have orders
+     * are asked again for the missing ones while the page is not full, so a page reads about limit orders in total
+     * instead of limit orders from every shard.
+     * The pages are merged round-robin, one order of each shard at a time, until the limit is reached.
+     * The cursor is opaque to the caller, it holds the offset reached in every shard; the handler receives
+     * the merged orders and the nextCursor (null once every shard was fully read).
+     */
+    public void getOrders(String cursor, int limit, RequestTrace trace, Handler<AsyncResult<JsonObject>> handler) {
+        int[] offsets = decodeCursor(cursor);
+        if (offsets == null) {
+            handler.handle(Future.failedFuture(new IllegalArgumentException("invalid cursor")));
+            return;
+        }
+        List<List<Order>> fetched = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            fetched.add(new ArrayList<>());
+        }
+        int[] requested = new int[shards];
+        Arrays.fill(requested, (limit + shards - 1) / shards);
+        fetchPages(offsets, requested, fetched, new int[shards], limit, trace, handler);
+    }
+
+    /**
+     * This method requests the next orders of the shards with a requested count, after the orders already fetched.
+     * Once every shard answered, the page is merged when it is full or no shard has more orders, otherwise the missing
+     * orders are requested from the shards that filled their last request.
+     */
+    private void fetchPages(int[] offsets, int[] requested, List<List<Order>> fetched, int[] sizes, int limit,
+                            RequestTrace trace, Handler<AsyncResult<JsonObject>> handler) {
+        int requests = 0;
+        for (int count : requested) {
+            requests += count > 0 ? 1 : 0;
+        }
+        if (!admit(requests, handler)) {
+            return;
+        }
+
+        boolean[] filled = new boolean[shards];
+        int[] pending = {requests};
+        boolean[] failed = {false};
+        DeliveryOptions options = traced(getOrdersOptions, trace);
+        for (int shard = 0; shard < shards; shard++) {
+            if (requested[shard] == 0) {
+                continue;
+            }
+            int currentShard = shard;
+            JsonObject pageRequest = new JsonObject()
+                    .put("offset", offsets[shard] + fetched.get(shard).size())
+                    .put("limit", requested[shard]);
+            vertx.eventBus().<OrderPage>request(OrderShards.address(OrderShards.GET_ORDERS_ADDRESS, shard), pageRequest, options, getOrdersMetrics.measure(track(shard, result -> {
+                if (failed[0]) {
+                    return;
+                }
+                if (result.failed()) {
+                    failed[0] = true;
+                    trace.log(log, Level.WARNING, "orderClient.getOrders: shard " + currentShard + " failed, cause: " + result.cause());
+                    handler.handle(Future.failedFuture(result.cause()));
+                    return;
+                }
+                OrderPage page = result.result().body();
+                fetched.get(currentShard).addAll(page.getOrders());
+                sizes[currentShard] = page.getSize();
+                filled[currentShard] = page.getOrders().size() == requested[currentShard];
+                if (--pending[0] > 0) {
+                    return;
+                }
+
+                int total = 0;
+                int shardsWithMore = 0;
+                for (int each = 0; each < shards; each++) {
+                    total += fetched.get(each).size();
+                    shardsWithMore += hasMore(each, filled, offsets, fetched, sizes) ? 1 : 0;
+                }
+                if (total >= limit || shardsWithMore == 0) {
+                    handler.handle(Future.succeededFuture(mergePages(fetched, offsets, sizes, limit)));
+                    return;
+                }
+                int share = (limit - total + shardsWithMore - 1) / shardsWithMore;
+                int[] next = new int[shards];
+                for (int each = 0; each < shards; each++) {
+                    next[each] = hasMore(each, filled, offsets, fetched, sizes) ? share : 0;
+                }
+                fetchPages(offsets, next, fetched, sizes, limit, trace, handler);
+            })));
+        }
+    }
+
+    private static boolean hasMore(int shard, boolean[] filled, int[] offsets, List<List<Order>> fetched, int[] sizes) {
+        return filled[shard] && offsets[shard] + fetched.get(shard).size() < sizes[shard];
+    }
+
+    /**
+     * This method requests the data version of every shard, the handler receives them joined in shard order
+     * (e.g. "epoch0.version0_epoch1.version1"). The value changes whenever an order is added to any shard.
+     */
+    public void getVersion(RequestTrace trace, Handler<AsyncResult<String>> handler) {
+        if (!admit(shards, handler)) {
+            return;
+        }
+
+        String[] versions = new String[shards];
+        int[] pending = {shards};
+        boolean[] failed = {false};
+        DeliveryOptions options = traced(getVersionOptions, trace);
+        for (int shard = 0; shard < shards; shard++) {
+            int currentShard = shard;
+            vertx.eventBus().<String>request(OrderShards.address(OrderShards.GET_VERSION_ADDRESS, shard), null, options, getVersionMetrics.measure(track(shard, result -> {
+                if (failed[0]) {
+                    return;
+                }
+                if (result.failed()) {
+                    failed[0] = true;
+                    trace.log(log, Level.WARNING, "orderClient.getVersion: shard " + currentShard + " failed, cause: " + result.cause());
+                    handler.handle(Future.failedFuture(result.cause()));
+                    return;
+                }
+                versions[currentShard] = result.result().body();
+                if (--pending[0] == 0) {
+                    handler.handle(Future.succeededFuture(String.join("_", versions)));
+                }
+            })));
+        }
+    }
+
+    /**
+     * This method sends a query to every shard and merges their results into a single page, in the order of the query.
+     * Every shard returns its first limit results after the cursor, so the first limit orders of the merged results are
+     * the first limit results of all the shards. The per day counts of the shards are summed.
+     * The cursor is opaque to the caller, it holds the sort key and orderId of the last order of the previous page; the handler receives
+     * the orders, the countsByDay (only for a date range query) and the nextCursor (null once every result was returned).
+     */
+    public void queryOrders(OrderQuery query, String cursor, RequestTrace trace, Handler<AsyncResult<JsonObject>> handler) {
+        Order after = null;
+        if (cursor != null) {
+            after = decodeQueryCursor(query, cursor);
+            if (after == null) {
+                handler.handle(Future.failedFuture(new IllegalArgumentException("invalid cursor")));
+                return;
+            }
+        }
+        if (!admit(shards, handler)) {
+            return;
+        }
+
+        OrderQuery pageQuery = query.after(after);
+        JsonObject queryRequest = pageQuery.toJson();
+        OrderQueryResult[] results = new OrderQueryResult[shards];
+        int[] pending = {shards};
+        boolean[] failed = {false};
+        DeliveryOptions options = traced(queryOrdersOptions, trace);
+        for (int shard = 0; shard < shards; shard++) {
+            int currentShard = shard;
+            vertx.eventBus().<OrderQueryResult>request(OrderShards.address(OrderShards.QUERY_ORDERS_ADDRESS, shard), queryRequest, options, queryOrdersMetrics.measure(track(shard, result -> {
+                if (failed[0]) {
+                    return;
+                }
+                if (result.failed()) {
+                    failed[0] = true;
+                    trace.log(log, Level.WARNING, "orderClient.queryOrders: shard " + currentShard + " failed, cause: " + result.cause());
+                    handler.handle(Future.failedFuture(result.cause()));
+                    return;
+                }
+                results[currentShard] = result.result().body();
+                if (--pending[0] == 0) {
+                    handler.handle(Future.succeededFuture(mergeQueryResults(pageQuery, results)));
+                }
+            })));
+        }
+    }
+
+    /**
+     * This method admits a request of the given number of Event Bus requests, or fails the handler at once
+     * when the in-flight limit of this instance is reached.
+     */
+    private <T> boolean admit(int requests, Handler<AsyncResult<T>> handler) {
+        if (inFlight + requests > maxInFlight) {
+            inFlightRejections.increment();
+            handler.handle(Future.failedFuture(new OverloadedException("too many order requests in flight")));
+            return false;
+        }
+        inFlight += requests;
+        return true;
+    }
+
+    /**
+     * This method admits new orders for a shard, they are also refused while the shard reports a queue depth above the limit.
+     * A reported queue depth expires after QUEUE_DEPTH_MAX_AGE_MS, so a shard that was refused new orders is tried again.
+     */
+    private <T> boolean admitWrite(int shard, Handler<AsyncResult<T>> handler) {
+        if (queueDepths[shard] >= maxQueueDepth && System.currentTimeMillis() - queueDepthTimes[shard] < QUEUE_DEPTH_MAX_AGE_MS) {
+            queueDepthRejections.increment();
+            handler.handle(Future.failedFuture(new OverloadedException("order shard " + shard + " is overloaded")));
+            return false;
+        }
+        return admit(1, handler);
+    }
+
+    /**
+     * This method wraps the reply handler of an admitted request: it releases its in-flight slot and keeps the queue
+     * depth reported by the shard (a shard that failed with 503 is considered full).
+     */
+    private <T> Handler<AsyncResult<Message<T>>> track(int shard, Handler<AsyncResult<Message<T>>> handler) {
+        return result -> {
+            inFlight--;
+            if (result.succeeded()) {
+                String queueDepth = result.result().headers().get(OrderShards.QUEUE_DEPTH_HEADER);
+                if (queueDepth != null) {
+                    queueDepths[shard] = Integer.parseInt(queueDepth);
+                    queueDepthTimes[shard] = System.currentTimeMillis();
+                }
+            } else if (result.cause() instanceof ReplyException
+                    && ((ReplyException) result.cause()).failureCode() == RestVerticle.HTTP_STATUS_SERVICE_UNAVAILABLE) {
+                queueDepths[shard] = Integer.MAX_VALUE;
+                queueDepthTimes[shard] = System.currentTimeMillis();
+            }
+            handler.handle(result);
+        };
+    }
+
+    /**
+     * Helper method to add the trace headers to the shared options of an address, the shared options are not modified.
+     */
+    private static DeliveryOptions traced(DeliveryOptions options, RequestTrace trace) {
+        if (trace == RequestTrace.NONE) {
+            return options;
+        }
+        return trace.addHeaders(new DeliveryOptions().setSendTimeout(options.getSendTimeout()));
+    }
+
+    private static DeliveryOptions deliveryOptions(String address, long defaultTimeoutMs) {
+        return new DeliveryOptions().setSendTimeout(Long.getLong(TIMEOUT_PROPERTY_PREFIX + address, defaultTimeoutMs));
+    }
+
+    private JsonObject mergePages(List<List<Order>> fetched, int[] offsets, int[] sizes, int limit) {
+        JsonArray orders = new JsonArray();
+        int[] taken = new int[shards];
+        boolean progress = true;
+        while (orders.size() < limit && progress) {
+            progress = false;
+            for (int shard = 0; shard < shards && orders.size() < limit; shard++) {
+                List<Order> shardOrders = fetched.get(shard);
+                if (taken[shard] < shardOrders.size()) {
+                    orders.add(shardOrders.get(taken[shard]++).toJson());
+                    progress = true;
+                }
+            }
+        }
+
+        int[] nextOffsets = new int[shards];
+        boolean hasMore = false;
+        for (int shard = 0; shard < shards; shard++) {
+            nextOffsets[shard] = offsets[shard] + taken[shard];
+            hasMore |= nextOffsets[shard] < sizes[shard];
+        }
+        return new JsonObject()
+                .put("orders", orders)
+                .put("nextCursor", hasMore ? encodeCursor(nextOffsets) : null);
+    }
+
+    private JsonObject mergeQueryResults(OrderQuery query, OrderQueryResult[] results) {
+        List<Order> merged = new ArrayList<>();
+        boolean shardHasMore = false;
+        SortedMap<Long, Integer> countsByDay = new TreeMap<>();
+        for (OrderQueryResult result : results) {
+            merged.addAll(result.getOrders());
+            shardHasMore |= result.getOrders().size() >= query.getLimit();
+            result.getCountsByDay().forEach((day, count) -> countsByDay.merge(day, count, Integer::sum));
+        }
+        merged.sort(query.comparator());
+        boolean hasMore = merged.size() > query.getLimit() || shardHasMore;
+        List<Order> page = merged.subList(0, Math.min(query.getLimit(), merged.size()));
+
+        JsonArray orders = new JsonArray();
+        page.forEach(order -> orders.add(order.toJson()));
+        JsonObject response = new JsonObject().put("orders", orders);
+        if (query.isByDate()) {
+            JsonObject days = new JsonObject();
+            for (Map.Entry<Long, Integer> dayCount : countsByDay.entrySet()) {
+                days.put(LocalDate.ofEpochDay(dayCount.getKey()).toString(), dayCount.getValue());
+            }
+            response.put("countsByDay", days);
+        }
+        return response.put("nextCursor", hasMore && !page.isEmpty() ? encodeQueryCursor(query, page.get(page.size() - 1)) : null);
+    }
+
+    /**
+     * Round-trip time and timeouts of the requests sent to one Event Bus address (all shards together).
+     */
+    private static class RequestMetrics {
+        private final Timer roundTrip;
+        private final Counter timeouts;
+
+        private RequestMetrics(String address) {
+            roundTrip = AppMetrics.timer("order.eventbus.request", "address", address);
+            timeouts = AppMetrics.counter("order.eventbus.timeouts", "address", address);
+        }
+
+        private <T> Handler<AsyncResult<Message<T>>> measure(Handler<AsyncResult<Message<T>>> handler) {
+            long start = System.nanoTime();
+            return result -> {
+                roundTrip.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (result.failed() && result.cause() instanceof ReplyException
+                        && ((ReplyException) result.cause()).failureType() == ReplyFailure.TIMEOUT) {
+                    timeouts.increment();
+                }
+                handler.handle(result);
+            };
+        }
+    }
+
+    /**
+     * This method tells whether a request failed because the order service is saturated: it was not admitted by the
+     * client, the shard answered 503 (overloaded), it timed out or no shard consumer is registered.
+     * The request can be retried after RETRY_AFTER_SECONDS.
+     */
+    public static boolean isOverloaded(Throwable cause) {
+        if (cause instanceof OverloadedException) {
+            return true;
+        }
+        if (cause instanceof ReplyException) {
+            ReplyException replyException = (ReplyException) cause;
+            return replyException.failureType() == ReplyFailure.TIMEOUT || replyException.failureType() == ReplyFailure.NO_HANDLERS
+                    || replyException.failureCode() == RestVerticle.HTTP_STATUS_SERVICE_UNAVAILABLE;
+        }
+        return false;
+    }
+
+    /**
+     * Failure of a request that was not admitted because the order service is saturated, the client should retry
+     * after RETRY_AFTER_SECONDS.
+     */
+    public static class OverloadedException extends RuntimeException {
+        public OverloadedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The cursor is the url safe base64 form of "shards:offset0.offset1...", a cursor created with another
+     * number of shards is rejected.
+     */
+    private String encodeCursor(int[] offsets) {
+        StringBuilder cursor = new StringBuilder().append(shards).append(':');
+        for (int shard = 0; shard < shards; shard++) {
+            cursor.append(shard == 0 ? "" : ".").append(offsets[shard]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private int[] decodeCursor(String cursor) {
+        if (cursor == null) {
+            return new int[shards];
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            String[] parts = decoded.split(":", 2);
+            String[] offsets = parts.length == 2 ? parts[1].split("\\.") : new String[0];
+            if (Integer.parseInt(parts[0]) != shards || offsets.length != shards) {
+                return null;
+            }
+            int[] result = new int[shards];
+            for (int shard = 0; shard < shards; shard++) {
+                result[shard] = Integer.parseInt(offsets[shard]);
+                if (result[shard] < 0) {
+                    return null;
+                }
+            }
+            return result;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The cursor of a query is the url safe base64 form of the JSON array [sort key, orderId] of the last order of the
+     * previous page, the sort key is the date key for a date range query and the orderName otherwise.
+     * Only the fields compared by the query are kept, so the cursor size does not depend on the other fields of the order.
+     */
+    private static String encodeQueryCursor(OrderQuery query, Order order) {
+        JsonArray cursor = new JsonArray()
+                .add(query.isByDate() ? OrderQuery.dateKey(order.getOrderDate()) : order.getOrderName())
+                .add(order.getOrderId());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the "after" order of the query, with only its sort key and orderId (the date key is given back as an
+     * UTC date-time of the same epoch milliseconds), or null if the cursor is not a cursor of this kind of query
+     */
+    private static Order decodeQueryCursor(OrderQuery query, String cursor) {
+        try {
+            JsonArray decoded = new JsonArray(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            String orderId = decoded.getString(1);
+            if (decoded.size() != 2 || orderId == null) {
+                return null;
+            }
+            if (query.isByDate()) {
+                Long dateKey = decoded.getLong(0);
+                return dateKey != null ? new Order(orderId, null, Instant.ofEpochMilli(dateKey).toString()) : null;
+            }
+            return new Order(orderId, decoded.getString(0), null);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DecodeException | ClassCastException | DateTimeException e) {
+            return null;
+        }
+    }
+}
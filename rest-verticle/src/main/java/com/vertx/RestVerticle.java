@@ -1,9 +1,13 @@
 package com.vertx;
 
+import io.micrometer.core.instrument.Timer;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.buffer.Buffer;
-import io.vertx.core.file.FileSystem;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -12,8 +16,13 @@ import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.Session;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.SessionHandler;
+import io.vertx.ext.web.sstore.ClusteredSessionStore;
 import io.vertx.ext.web.sstore.LocalSessionStore;
+import io.vertx.ext.web.sstore.SessionStore;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class RestVerticle extends AbstractVerticle {
@@ -22,33 +31,79 @@ public class RestVerticle extends AbstractVerticle {
 
     public static final Integer PORT_LISTENER = 8080;
     public static final String JSON_LOGIN_FILE = "users.json";
+    public static final Long LOGIN_FILE_WATCH_INTERVAL_MS = 5000L;
     public static final String REST_VERTICAL_SERVICE = "rest-verticle-service";
 
     private static final String ROUTER_GREETING = "/";
     private static final String ROUTER_LOGIN = "/login";
     private static final String ROUTER_LOGOUT = "/logout";
     private static final String ROUTER_ADD_ORDER = "/add-order";
+    private static final String ROUTER_ADD_ORDERS = "/add-orders";
     private static final String ROUTER_GET_ORDERS = "/get-orders";
+    private static final String ROUTER_GET_ORDER = "/orders/:id";
+    private static final String ROUTER_QUERY_ORDERS = "/orders";
+    private static final String TRACE_KEY = "trace";
+    private static final String STREAMED_BODY_KEY = "streamedBody";
+
+    public static final Integer DEFAULT_PAGE_LIMIT = 100;
+    public static final Integer MAX_PAGE_LIMIT = 1000;
+    public static final Integer EXPORT_PAGE_LIMIT = 1000;
+    public static final Integer RESPONSE_CACHE_ENTRIES = 64;
 
     public static final Integer HTTP_STATUS_OKAY = 200;
+    public static final Integer HTTP_STATUS_NOT_MODIFIED = 304;
     public static final Integer HTTP_STATUS_NOT_FOUND = 404;
     public static final Integer HTTP_STATUS_BAD_REQUEST = 400;
     public static final Integer HTTP_STATUS_UNAUTHORIZED = 401;
     public static final Integer HTTP_STATUS_INTERNAL_SERVER_ERROR = 500;
+    public static final Integer HTTP_STATUS_SERVICE_UNAVAILABLE = 503;
+
+    private CredentialStore credentialStore;
+    private OrderClient orderClient;
+    private long eventLoopLagTimerId = -1;
+    private final Map<String, Buffer> responseCache = new LinkedHashMap<>(RESPONSE_CACHE_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Buffer> eldest) {
+            return size() > RESPONSE_CACHE_ENTRIES;
+        }
+    };
 
     /**
      * This method starts an HTTP server:
      * The method create a Vert.x  HTTP server and then handle every request using the router generated from the createRouter() method (listening to port 8080).
+     * Before that, the users are loaded once into the credential index shared by the instances of this Vert.x instance,
+     * which is reloaded whenever the users file changes.
      */
     @Override
     public void start(Promise<Void> startPromise) {
         log.info("restVerticle.start: going to startPromise");
-        vertx.createHttpServer()
+        OrderCodecs.register(vertx.eventBus());
+        eventLoopLagTimerId = AppMetrics.monitorEventLoopLag(vertx);
+        orderClient = new OrderClient(vertx, OrderShards.count());
+        String usersFile = config().getString("usersFile", JSON_LOGIN_FILE);
+        CredentialStore.shared(vertx, usersFile, LOGIN_FILE_WATCH_INTERVAL_MS, store -> {
+            credentialStore = store;
+            startHttpServer(startPromise);
+        });
+    }
+
+    @Override
+    public void stop() {
+        AppMetrics.stopEventLoopLagMonitor(vertx, eventLoopLagTimerId);
+        credentialStore.release();
+    }
+
+    /**
+     * The responses are compressed with gzip or deflate when the client accepts it (Accept-Encoding).
+     */
+    private void startHttpServer(Promise<Void> startPromise) {
+        int port = config().getInteger("httpPort", PORT_LISTENER);
+        vertx.createHttpServer(new HttpServerOptions().setCompressionSupported(true))
                 .requestHandler(createRouter())
-                .listen(PORT_LISTENER, httpInstance -> {
+                .listen(port, httpInstance -> {
                     if (httpInstance.succeeded()) {
                         startPromise.complete();
-                        log.info("HttpServer was created from " + REST_VERTICAL_SERVICE + " and lessening to port " + PORT_LISTENER);
+                        log.info("HttpServer was created from " + REST_VERTICAL_SERVICE + " and lessening to port " + port);
                     } else {
                         startPromise.fail(httpInstance.cause());
                         log.info("HttpServer creation decline " + REST_VERTICAL_SERVICE + " cause: " + httpInstance.cause());
@@ -58,56 +113,139 @@ public class RestVerticle extends AbstractVerticle {
 
     /**
      * This method creates a Vert.x Web Router (the object used to route HTTP requests to specific request handlers).
+     * In cluster mode the sessions are kept in the cluster, so any RestVerticle instance on any node can serve any user.
      *
      * @return Vert.x Web Router
      */
     private Router createRouter() {
         log.info("restVerticle.createRouter: going to create all routes handlers");
         final Router router = Router.router(vertx);
-        router.route().handler(SessionHandler.create(LocalSessionStore.create(vertx)));
-        router.route().handler(BodyHandler.create());
-
-        router.get(ROUTER_GREETING).handler(this::greetingHandler);
-        router.post(ROUTER_LOGIN).handler(this::loginHandler);
-        router.post(ROUTER_LOGOUT).handler(this::sessionAuth).handler(this::logoutHandler);
-        router.post(ROUTER_ADD_ORDER).handler(this::sessionAuth).handler(this::addOrderHandler);
-        router.get(ROUTER_GET_ORDERS).handler(this::sessionAuth).handler(this::getOrdersHandler);
+        router.route().handler(RestVerticle::startTrace);
+        // the bulk ingestion streams its body, it must stay paused until its handler is ready and skip the BodyHandler
+        router.post(ROUTER_ADD_ORDERS).handler(routeMetrics(ROUTER_ADD_ORDERS)).handler(context -> {
+            context.request().pause();
+            context.put(STREAMED_BODY_KEY, Boolean.TRUE);
+            context.next();
+        });
+        // the other bodies are read before the session lookup: the clustered session store answers asynchronously
+        // and the request is not paused meanwhile, so the body chunks received during the lookup would be dropped
+        router.route().handler(bodyHandler());
+        router.route().handler(SessionHandler.create(createSessionStore()));
+        router.post(ROUTER_ADD_ORDERS).handler(this::sessionAuth).handler(this::addOrdersHandler);
+
+        router.get(ROUTER_GREETING).handler(routeMetrics(ROUTER_GREETING)).handler(this::greetingHandler);
+        router.post(ROUTER_LOGIN).handler(routeMetrics(ROUTER_LOGIN)).handler(this::loginHandler);
+        router.post(ROUTER_LOGOUT).handler(routeMetrics(ROUTER_LOGOUT)).handler(this::sessionAuth).handler(this::logoutHandler);
+        router.post(ROUTER_ADD_ORDER).handler(routeMetrics(ROUTER_ADD_ORDER)).handler(this::sessionAuth).handler(this::addOrderHandler);
+        router.get(ROUTER_GET_ORDERS).handler(routeMetrics(ROUTER_GET_ORDERS)).handler(this::sessionAuth).handler(this::getOrdersHandler);
+        router.get(ROUTER_GET_ORDER).handler(routeMetrics(ROUTER_GET_ORDER)).handler(this::sessionAuth).handler(this::getOrderHandler);
+        router.get(ROUTER_QUERY_ORDERS).handler(routeMetrics(ROUTER_QUERY_ORDERS)).handler(this::sessionAuth).handler(this::queryOrdersHandler);
         return router;
     }
 
+    /**
+     * Helper method to read the request body with a BodyHandler, except for the streamed bulk ingestion body.
+     */
+    private static Handler<RoutingContext> bodyHandler() {
+        BodyHandler bodyHandler = BodyHandler.create();
+        return context -> {
+            if (context.get(STREAMED_BODY_KEY) != null) {
+                context.next();
+            } else {
+                bodyHandler.handle(context);
+            }
+        };
+    }
+
+    /**
+     * Helper method to count the requests of a route and record their latency, from the first handler of the route
+     * until the response is written. The timer is looked up once, when the router is created.
+     * A request allocates a single RouteTiming (the body end handler itself), and nothing when the metrics are disabled.
+     */
+    private static Handler<RoutingContext> routeMetrics(String route) {
+        if (!AppMetrics.isEnabled()) {
+            return RoutingContext::next;
+        }
+        Timer timer = AppMetrics.timer("http.server.route", "route", route);
+        return context -> {
+            context.addBodyEndHandler(new RouteTiming(timer));
+            context.next();
+        };
+    }
+
+    /**
+     * The body end handler of a timed request, it keeps the start time of the request in a field.
+     */
+    private static final class RouteTiming implements Handler<Void> {
+        private final Timer timer;
+        private final long startNanos = System.nanoTime();
+
+        private RouteTiming(Timer timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public void handle(Void end) {
+            timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Helper method to start the RequestTrace of every request, its request id is returned in the X-Request-Id header
+     * and sent with the Event Bus requests of the request.
+     */
+    private static void startTrace(RoutingContext context) {
+        RequestTrace trace = RequestTrace.start(context.request().getHeader(RequestTrace.REQUEST_ID_HEADER));
+        context.put(TRACE_KEY, trace);
+        context.response().putHeader(RequestTrace.REQUEST_ID_HEADER, trace.getRequestId());
+        context.next();
+    }
+
+    private static RequestTrace trace(RoutingContext context) {
+        return context.get(TRACE_KEY);
+    }
+
+    /**
+     * Helper method to create the session store: a clustered store when running in cluster mode, otherwise a local one.
+     */
+    private SessionStore createSessionStore() {
+        if (vertx.isClustered()) {
+            return ClusteredSessionStore.create(vertx);
+        }
+        return LocalSessionStore.create(vertx);
+    }
+
     /**
      * POST: loginHandler(RoutingContext context) – this method will use the RoutingContext interface to get the username and password from the user, and check if the user can be logged in (username and password will be saved in local JSON file).
+     * The credentials are checked against the cached credential index, the password hashing runs on the credential-hash worker pool.
      * In the background the module should open a session for each user that logged in.
      */
     private void loginHandler(RoutingContext context) {
-        log.info("restVerticle.loginHandler: going to login for session= " + context.session());
+        RequestTrace trace = trace(context);
+        trace.log(log, "restVerticle.loginHandler: going to login");
         JsonObject jsonFromContext = context.getBodyAsJson();
-        FileSystem fileSystem = vertx.fileSystem();
-
-        log.info("restVerticle.loginHandler: going to read from json file");
-        fileSystem.readFile(JSON_LOGIN_FILE, asyncResult -> {
-            if (asyncResult.succeeded()) {
-                Buffer buffer = asyncResult.result();
-                JsonArray jsonArrayFromFile = buffer.toJsonArray();
-
-                for (Object json : jsonArrayFromFile) {
-                    JsonObject jsonFromFile = (JsonObject) json;
-                    log.info("restVerticle.loginHandler: going to check login details: username and password");
-                    if (jsonFromFile.getValue("username").equals(jsonFromContext.getValue("username")) && jsonFromFile.getValue("password").equals(jsonFromContext.getValue("password"))) {
-                        Session session = context.session();
-                        session.put("sessionAuth", true);
-
-                        log.info("restVerticle.loginHandler: login successfully for session= " + context.session());
-                        contextResponse(context, "false", "login successfully", HTTP_STATUS_OKAY);
-                    } else {
-                        log.info("restVerticle.loginHandler: login failed - username or password incorrect for session= " + context.session());
-                        contextResponse(context, "username or password incorrect", "false", HTTP_STATUS_UNAUTHORIZED);
-                    }
-                    return;
-                }
-            } else {
-                log.info("restVerticle.loginHandler: login failed - can't find/ can't read from " + JSON_LOGIN_FILE + " for session= " + context.session());
+        Object username = jsonFromContext == null ? null : jsonFromContext.getValue("username");
+        Object password = jsonFromContext == null ? null : jsonFromContext.getValue("password");
+        if (!(username instanceof String) || !(password instanceof String)) {
+            trace.log(log, "restVerticle.loginHandler: login failed - username or password missing");
+            contextResponse(context, "username or password incorrect", "false", HTTP_STATUS_UNAUTHORIZED);
+            return;
+        }
+
+        trace.log(log, "restVerticle.loginHandler: going to check login details: username and password");
+        credentialStore.verify((String) username, (String) password, asyncResult -> {
+            if (asyncResult.failed()) {
+                trace.log(log, "restVerticle.loginHandler: login failed - can't check credentials from " + JSON_LOGIN_FILE);
                 contextResponse(context, "something went wrong", "false", HTTP_STATUS_INTERNAL_SERVER_ERROR);
+            } else if (asyncResult.result()) {
+                Session session = context.session();
+                session.put("sessionAuth", true);
+
+                trace.log(log, "restVerticle.loginHandler: login successfully");
+                contextResponse(context, "false", "login successfully", HTTP_STATUS_OKAY);
+            } else {
+                trace.log(log, "restVerticle.loginHandler: login failed - username or password incorrect");
+                contextResponse(context, "username or password incorrect", "false", HTTP_STATUS_UNAUTHORIZED);
             }
         });
     }
@@ -116,7 +254,8 @@ public class RestVerticle extends AbstractVerticle {
      * Helper method to check if users session is permitted.
      */
     private void sessionAuth(RoutingContext context) {
-        log.info("restVerticle.sessionAuth: going to check authentication for session= " + context.session());
+        RequestTrace trace = trace(context);
+        trace.log(log, "restVerticle.sessionAuth: going to check authentication");
         Session session = context.session();
         Boolean isAuth = session.get("sessionAuth");
         if (isAuth != null && isAuth) {
@@ -130,7 +269,8 @@ public class RestVerticle extends AbstractVerticle {
      * This method will be used to log out from the user session, his session will be destroyed.
      */
     private void logoutHandler(RoutingContext context) {
-        log.info("restVerticle.logoutHandler: going to logout, session= " + context.session());
+        RequestTrace trace = trace(context);
+        trace.log(log, "restVerticle.logoutHandler: going to logout");
         Session session = context.session();
         session.put("sessionAuth", false);
         session.destroy();
@@ -141,7 +281,8 @@ public class RestVerticle extends AbstractVerticle {
      * This method greeting the user at the main endpoint.
      */
     private void greetingHandler(RoutingContext context) {
-        log.info("restVerticle.greetingHandler: request pass with status " + HTTP_STATUS_OKAY);
+        RequestTrace trace = trace(context);
+        trace.log(log, "restVerticle.greetingHandler: STATUS 200 OKAY");
         context.response()
                 .putHeader("content-type", "text/plain")
                 .end("Welcome to " + REST_VERTICAL_SERVICE + " let's have some fun!");
@@ -149,49 +290,357 @@ public class RestVerticle extends AbstractVerticle {
 
     /**
      * This method will add an order to the user.
-     * By using Vert.x Event Bus, the order will be sent to the OrderVerticle module.
+     * By using Vert.x Event Bus, the order will be sent to the OrderVerticle instance that owns the shard of its orderID.
      */
     private void addOrderHandler(RoutingContext context) {
+        RequestTrace trace = trace(context);
         JsonObject jsonBody = context.getBodyAsJson();
-        log.info("restVerticle.addOrderHandler: going to use eventBus, adding data to: orderVerticle.addOrder");
+        if (jsonBody == null || !(jsonBody.getValue("orderID") instanceof String)) {
+            trace.log(log, "restVerticle.addOrderHandler: STATUS 400 BAD REQUEST - orderID is missing");
+            context.response().setStatusCode(HTTP_STATUS_BAD_REQUEST).end("orderID is missing");
+            return;
+        }
+        trace.log(log, "restVerticle.addOrderHandler: going to use eventBus, adding data to: orderVerticle.addOrder");
 
-        vertx.eventBus().request("addOrder", jsonBody, handler -> {
+        Order order = new Order(jsonBody.getString("orderID"), jsonBody.getString("orderName"), jsonBody.getString("orderDate"));
+        orderClient.addOrder(order, trace, handler -> {
             if (handler.succeeded()) {
-                log.info("restVerticle.addOrderHandler: STATUS 200 OKAY - data added to orderVerticle.addOrder");
+                trace.log(log, "restVerticle.addOrderHandler: STATUS 200 OKAY - data added to orderVerticle.addOrder");
                 context.response()
                         .putHeader("content-type", "application/json")
                         .setStatusCode(HTTP_STATUS_OKAY)
-                        .end(Json.encodePrettily(handler.result().body()));
+                        .end(Json.encodePrettily(handler.result().body().toJson()));
             } else {
-                log.info("restVerticle.addOrderHandler: STATUS 400 BAD REQUEST - something went wrong while adding data to orderVerticle.addOrder");
-                context.response().setStatusCode(HTTP_STATUS_BAD_REQUEST)
-                        .end(handler.cause().getMessage());
+                if (trace.isLoggable(log)) {
+                    trace.log(log, "restVerticle.addOrderHandler: something went wrong while adding data to orderVerticle.addOrder, cause: " + handler.cause().getMessage());
+                }
+                failureResponse(context, handler.cause(), HTTP_STATUS_BAD_REQUEST);
             }
         });
     }
 
     /**
-     * This method will return all user orders.
-     * The request to get the data will be sent by Vert.x Event Bus to the OrderVerticle module.
+     * This method will add many orders at once, the body is a JSON array of orders or NDJSON (content-type application/x-ndjson).
+     * The orders are validated while the body is received and sent by Vert.x Event Bus to the OrderVerticle module
+     * in bounded batches, each batch is committed with a single storage write.
+     * The response holds the number of accepted and rejected orders and one result per order.
+     */
+    private void addOrdersHandler(RoutingContext context) {
+        RequestTrace trace = trace(context);
+        trace.log(log, "restVerticle.addOrdersHandler: going to use eventBus, adding orders batches to: orderVerticle.addOrders");
+        new BulkOrderIngestion(orderClient, context.request(), trace, handler -> {
+            if (handler.succeeded()) {
+                trace.log(log, "restVerticle.addOrdersHandler: STATUS 200 OKAY - orders added to orderVerticle.addOrders");
+                context.response()
+                        .putHeader("content-type", "application/json")
+                        .setStatusCode(HTTP_STATUS_OKAY)
+                        .end(handler.result().toBuffer());
+            } else if (handler.cause() instanceof BulkOrderIngestion.IngestionException) {
+                if (trace.isLoggable(log)) {
+                    trace.log(log, "restVerticle.addOrdersHandler: orders not all added, cause: " + handler.cause().getMessage());
+                }
+                ingestionFailureResponse(context.response(), (BulkOrderIngestion.IngestionException) handler.cause());
+            } else {
+                failureResponse(context, handler.cause(), HTTP_STATUS_BAD_REQUEST);
+            }
+        }).start();
+    }
+
+    /**
+     * This method will return the user orders.
+     * With the limit and/or cursor query parameters a single bounded page is returned together with the nextCursor,
+     * without them all the orders are exported as a chunked, compact JSON array (see exportOrders()).
+     * The request to get the data will be sent by Vert.x Event Bus to every shard of the OrderVerticle module.
+     * The response has a strong ETag built from the data version of the shards and the query parameters:
+     * a request whose If-None-Match holds the current ETag is answered with 304 without reading any order,
+     * and the pages are served from a small cache of serialized responses while the version does not change.
      */
     private void getOrdersHandler(RoutingContext context) {
-        log.info("restVerticle.getOrdersHandler: going to use eventBus, requesting data from order-vertical-service: orderVerticle.getOrders");
+        RequestTrace trace = trace(context);
+        String limitParam = context.request().getParam("limit");
+        String cursor = context.request().getParam("cursor");
+        boolean export = limitParam == null && cursor == null;
+        int limit = parseLimit(limitParam);
+        if (!export && (limit < 1 || limit > MAX_PAGE_LIMIT)) {
+            if (trace.isLoggable(log)) {
+                trace.log(log, "restVerticle.getOrdersHandler: STATUS 400 BAD REQUEST - invalid limit= " + limitParam);
+            }
+            context.response().setStatusCode(HTTP_STATUS_BAD_REQUEST)
+                    .end("limit must be between 1 and " + MAX_PAGE_LIMIT);
+            return;
+        }
+        if (cursor != null && !cursor.matches("[A-Za-z0-9_-]+")) {
+            trace.log(log, "restVerticle.getOrdersHandler: STATUS 400 BAD REQUEST - invalid cursor");
+            context.response().setStatusCode(HTTP_STATUS_BAD_REQUEST).end("invalid cursor");
+            return;
+        }
+
+        orderClient.getVersion(trace, versionResult -> {
+            if (versionResult.failed()) {
+                trace.log(log, "restVerticle.getOrdersHandler: version request failed from orderVerticle.getVersion");
+                failureResponse(context, versionResult.cause(), HTTP_STATUS_NOT_FOUND);
+                return;
+            }
+            String etag = "\"" + versionResult.result() + (export ? "-all" : "-" + limit + "-" + (cursor == null ? "" : cursor)) + "\"";
+            context.response().putHeader("ETag", etag).putHeader("Cache-Control", "private, no-cache");
+            if (matchesEtag(context.request().getHeader("If-None-Match"), etag)) {
+                trace.log(log, "restVerticle.getOrdersHandler: STATUS 304 NOT MODIFIED - orders did not change");
+                context.response().setStatusCode(HTTP_STATUS_NOT_MODIFIED).end();
+                return;
+            }
+            if (export) {
+                exportOrders(context, null, 0);
+                return;
+            }
 
-        vertx.eventBus().request("getOrders", null, handler -> {
+            Buffer cached = responseCache.get(etag);
+            if (cached != null) {
+                trace.log(log, "restVerticle.getOrdersHandler: STATUS 200 OKAY - page served from the response cache");
+                context.response()
+                        .putHeader("content-type", "application/json")
+                        .setStatusCode(HTTP_STATUS_OKAY)
+                        .end(cached);
+                return;
+            }
+
+            trace.log(log, "restVerticle.getOrdersHandler: going to use eventBus, requesting page from order-vertical-service: orderVerticle.getOrders");
+            orderClient.getOrders(cursor, limit, trace, handler -> {
+                if (handler.succeeded()) {
+                    trace.log(log, "restVerticle.getOrdersHandler: STATUS 200 OKAY - page received from orderVerticle.getOrders");
+                    Buffer body = handler.result().toBuffer();
+                    responseCache.put(etag, body);
+                    context.response()
+                            .putHeader("content-type", "application/json")
+                            .setStatusCode(HTTP_STATUS_OKAY)
+                            .end(body);
+                } else {
+                    trace.log(log, "restVerticle.getOrdersHandler: page request failed from orderVerticle.getOrders");
+                    failureResponse(context, handler.cause(), HTTP_STATUS_NOT_FOUND);
+                }
+            });
+        });
+    }
+
+    /**
+     * Helper method to check an If-None-Match header (a list of ETags or *) against the current ETag.
+     */
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method streams all the user orders as one chunked JSON array, page by page.
+     * The next page is requested only once the previous one was accepted by the HTTP response (backpressure),
+     * so the memory used by an export is bounded by the page size and not by the number of orders.
+     */
+    private void exportOrders(RoutingContext context, String cursor, long written) {
+        RequestTrace trace = trace(context);
+        HttpServerResponse response = context.response();
+        orderClient.getOrders(cursor, EXPORT_PAGE_LIMIT, trace, handler -> {
+            if (response.closed()) {
+                return;
+            }
+            if (handler.failed()) {
+                if (written == 0 && !response.headWritten()) {
+                    trace.log(log, "restVerticle.exportOrders: data not found from orderVerticle.getOrders");
+                    failureResponse(context, handler.cause(), HTTP_STATUS_NOT_FOUND);
+                } else {
+                    if (trace.isLoggable(log)) {
+                        trace.log(log, "restVerticle.exportOrders: export interrupted, cause: " + handler.cause());
+                    }
+                    response.close();
+                }
+                return;
+            }
+
+            if (!response.headWritten()) {
+                trace.log(log, "restVerticle.exportOrders: STATUS 200 OKAY - streaming orders received from orderVerticle.getOrders");
+                response.putHeader("content-type", "application/json")
+                        .setStatusCode(HTTP_STATUS_OKAY)
+                        .setChunked(true);
+            }
+
+            JsonObject page = handler.result();
+            JsonArray orders = page.getJsonArray("orders");
+            Buffer chunk = Buffer.buffer(written == 0 ? "[" : "");
+            for (int i = 0; i < orders.size(); i++) {
+                if (written + i > 0) {
+                    chunk.appendString(",");
+                }
+                chunk.appendBuffer(orders.getJsonObject(i).toBuffer());
+            }
+
+            String nextCursor = page.getString("nextCursor");
+            long nextWritten = written + orders.size();
+            if (nextCursor == null) {
+                response.end(chunk.appendString("]"));
+                return;
+            }
+            response.write(chunk);
+            if (response.writeQueueFull()) {
+                response.drainHandler(v -> exportOrders(context, nextCursor, nextWritten));
+            } else {
+                exportOrders(context, nextCursor, nextWritten);
+            }
+        });
+    }
+
+    /**
+     * This method will return a single order by its orderId.
+     * The request will be sent by Vert.x Event Bus to the OrderVerticle module, which answers from its in-memory index.
+     */
+    private void getOrderHandler(RoutingContext context) {
+        RequestTrace trace = trace(context);
+        String orderId = context.pathParam("id");
+        trace.log(log, "restVerticle.getOrderHandler: going to use eventBus, requesting order from orderVerticle.getOrder");
+
+        orderClient.getOrder(orderId, trace, handler -> {
+            if (handler.succeeded()) {
+                trace.log(log, "restVerticle.getOrderHandler: STATUS 200 OKAY - order received from orderVerticle.getOrder");
+                context.response()
+                        .putHeader("content-type", "application/json")
+                        .setStatusCode(HTTP_STATUS_OKAY)
+                        .end(Json.encodePrettily(handler.result().body().toJson()));
+            } else {
+                trace.log(log, "restVerticle.getOrderHandler: order not found from orderVerticle.getOrder");
+                failureResponse(context, handler.cause(), HTTP_STATUS_NOT_FOUND);
+            }
+        });
+    }
+
+    /**
+     * This method will return the user orders in a date range and/or with a name prefix (from, to and namePrefix query parameters),
+     * one bounded page at a time (limit and cursor query parameters, see getOrdersHandler()).
+     * The from and to dates are ISO dates or date-times, both inclusive; the orders are sorted by orderDate when a date range is given,
+     * otherwise by orderName. A date range query also returns countsByDay, the number of orders of every day of the range.
+     * The query will be sent by Vert.x Event Bus to every shard of the OrderVerticle module, which answers from its sorted indexes.
+     */
+    private void queryOrdersHandler(RoutingContext context) {
+        RequestTrace trace = trace(context);
+        String from = context.request().getParam("from");
+        String to = context.request().getParam("to");
+        String namePrefix = context.request().getParam("namePrefix");
+        String limitParam = context.request().getParam("limit");
+        String cursor = context.request().getParam("cursor");
+        int limit = parseLimit(limitParam);
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            if (trace.isLoggable(log)) {
+                trace.log(log, "restVerticle.queryOrdersHandler: STATUS 400 BAD REQUEST - invalid limit= " + limitParam);
+            }
+            context.response().setStatusCode(HTTP_STATUS_BAD_REQUEST)
+                    .end("limit must be between 1 and " + MAX_PAGE_LIMIT);
+            return;
+        }
+        Long fromKey = OrderQuery.dateKey(from);
+        Long toKey = OrderQuery.dateEndKey(to);
+        if ((from != null && fromKey == null) || (to != null && toKey == null)) {
+            trace.log(log, "restVerticle.queryOrdersHandler: STATUS 400 BAD REQUEST - invalid from or to date");
+            context.response().setStatusCode(HTTP_STATUS_BAD_REQUEST).end("from and to must be ISO dates or date-times");
+            return;
+        }
+        if (from == null && to == null && namePrefix == null) {
+            trace.log(log, "restVerticle.queryOrdersHandler: STATUS 400 BAD REQUEST - no from, to or namePrefix");
+            context.response().setStatusCode(HTTP_STATUS_BAD_REQUEST).end("from, to or namePrefix is missing");
+            return;
+        }
+        if (cursor != null && !cursor.matches("[A-Za-z0-9_-]+")) {
+            trace.log(log, "restVerticle.queryOrdersHandler: STATUS 400 BAD REQUEST - invalid cursor");
+            context.response().setStatusCode(HTTP_STATUS_BAD_REQUEST).end("invalid cursor");
+            return;
+        }
+
+        trace.log(log, "restVerticle.queryOrdersHandler: going to use eventBus, sending query to: orderVerticle.queryOrders");
+        OrderQuery query = new OrderQuery(fromKey, toKey, namePrefix, limit, null);
+        orderClient.queryOrders(query, cursor, trace, handler -> {
             if (handler.succeeded()) {
-                log.info("restVerticle.getOrdersHandler: STATUS 200 OKAY - data received from orderVerticle.getOrders");
+                trace.log(log, "restVerticle.queryOrdersHandler: STATUS 200 OKAY - orders received from orderVerticle.queryOrders");
                 context.response()
                         .putHeader("content-type", "application/json")
                         .setStatusCode(HTTP_STATUS_OKAY)
-                        .end(Json.encodePrettily(handler.result().body()));
+                        .end(handler.result().toBuffer());
             } else {
-                log.info("restVerticle.getOrdersHandler: STATUS 404 NOT FOUND - data not found from orderVerticle.getOrders");
-                context.response().setStatusCode(HTTP_STATUS_NOT_FOUND)
-                        .end(handler.cause().getMessage());
+                trace.log(log, "restVerticle.queryOrdersHandler: query failed from orderVerticle.queryOrders");
+                failureResponse(context, handler.cause(), HTTP_STATUS_NOT_FOUND);
             }
         });
     }
 
+    /**
+     * Helper method to parse the limit query parameter, an invalid value is returned as -1.
+     */
+    private static int parseLimit(String limitParam) {
+        if (limitParam == null) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        try {
+            return Integer.parseInt(limitParam);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Helper method to answer a failed Event Bus request with the status of failureStatus().
+     * A 503 response carries a Retry-After header, so the clients back off while the order service is saturated.
+     */
+    private static void failureResponse(RoutingContext context, Throwable cause, int defaultStatus) {
+        int status = failureStatus(cause, defaultStatus);
+        HttpServerResponse response = context.response().setStatusCode(status);
+        response.headers().remove("ETag");
+        if (status == HTTP_STATUS_SERVICE_UNAVAILABLE) {
+            response.putHeader("Retry-After", String.valueOf(OrderClient.RETRY_AFTER_SECONDS));
+        }
+        response.end(String.valueOf(cause.getMessage()));
+    }
+
+    /**
+     * Helper method to map the failure of an Event Bus request to an HTTP status.
+     * A bad request (invalid cursor or a bad request reported by the OrderVerticle module) is returned as is.
+     * A saturated order service (see OrderClient.isOverloaded()) is returned as 503, other failures use the default status.
+     * A bulk ingestion fails with the status of its overload, or 400 when its body is invalid.
+     */
+    static int failureStatus(Throwable cause, int defaultStatus) {
+        if (cause instanceof IllegalArgumentException) {
+            return HTTP_STATUS_BAD_REQUEST;
+        }
+        if (cause instanceof BulkOrderIngestion.IngestionException) {
+            return cause.getCause() != null ? failureStatus(cause.getCause(), HTTP_STATUS_BAD_REQUEST) : HTTP_STATUS_BAD_REQUEST;
+        }
+        if (OrderClient.isOverloaded(cause)) {
+            return HTTP_STATUS_SERVICE_UNAVAILABLE;
+        }
+        if (cause instanceof ReplyException && ((ReplyException) cause).failureCode() == HTTP_STATUS_BAD_REQUEST) {
+            return HTTP_STATUS_BAD_REQUEST;
+        }
+        return defaultStatus;
+    }
+
+    /**
+     * Helper method to answer a failed bulk ingestion with the status of failureStatus() and the per order results,
+     * a 503 response carries a Retry-After header like the other saturated requests.
+     */
+    static void ingestionFailureResponse(HttpServerResponse response, BulkOrderIngestion.IngestionException failure) {
+        int status = failureStatus(failure, HTTP_STATUS_BAD_REQUEST);
+        if (status == HTTP_STATUS_SERVICE_UNAVAILABLE) {
+            response.putHeader("Retry-After", String.valueOf(OrderClient.RETRY_AFTER_SECONDS));
+        }
+        response.putHeader("content-type", "application/json")
+                .setStatusCode(status)
+                .end(failure.getSummary().toBuffer());
+    }
+
     /**
      * Helper method to print error values in case one of the endpoints collapse, or get runtime error.
      * This method used in other methods exist in this java class, I added it for clean code.
@@ -0,0 +1,187 @@
+package com.vertx;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkOrderIngestionTest {
+
+    private static final int SHARDS = 2;
+
+    private Vertx vertx;
+    private Context context;
+    private OrderClient orderClient;
+    private HttpClient httpClient;
+    private int port;
+    private final AtomicInteger completions = new AtomicInteger();
+    private final AtomicInteger batchesReceived = new AtomicInteger();
+    private volatile boolean shardZeroOverloaded;
+
+    /**
+     * An HTTP server that ingests the request body like POST /add-orders, with a fake shard consumer per shard:
+     * the orders are accepted, or shard 0 answers 503 while it is overloaded.
+     * The server and the OrderClient run on a single context, like a RestVerticle instance.
+     */
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        OrderCodecs.register(vertx.eventBus());
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int currentShard = shard;
+            vertx.eventBus().<OrderBatch>consumer(OrderShards.address(OrderShards.ADD_ORDERS_ADDRESS, shard), message -> {
+                batchesReceived.incrementAndGet();
+                if (currentShard == 0 && shardZeroOverloaded) {
+                    message.fail(RestVerticle.HTTP_STATUS_SERVICE_UNAVAILABLE, "order shard 0 is overloaded");
+                    return;
+                }
+                List<OrderResult> results = message.body().getOrders().stream()
+                        .map(order -> OrderResult.succeeded("order added"))
+                        .collect(Collectors.toList());
+                message.reply(new OrderBatchResult(results), new DeliveryOptions().addHeader(OrderShards.QUEUE_DEPTH_HEADER, "0"));
+            });
+        }
+        orderClient = new OrderClient(vertx, SHARDS);
+        HttpServer server = BlockingSupport.await(handler -> context.runOnContext(v -> vertx.createHttpServer().requestHandler(request -> {
+            request.pause();
+            new BulkOrderIngestion(orderClient, request, RequestTrace.NONE, result -> {
+                completions.incrementAndGet();
+                if (result.succeeded()) {
+                    request.response().setStatusCode(RestVerticle.HTTP_STATUS_OKAY).end(result.result().toBuffer());
+                } else {
+                    RestVerticle.ingestionFailureResponse(request.response(), (BulkOrderIngestion.IngestionException) result.cause());
+                }
+            }).start();
+        }).listen(0, handler)));
+        port = server.actualPort();
+        httpClient = vertx.createHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        BlockingSupport.<Void>await(vertx::close);
+    }
+
+    @Test
+    void addsOrdersOfEveryShard() {
+        Response response = post(orders(10));
+
+        assertEquals(200, response.status);
+        assertEquals(10, response.body.getInteger("accepted"));
+        assertEquals(0, response.body.getInteger("rejected"));
+        assertEquals(1, completions.get());
+    }
+
+    @Test
+    void shardRejectedBeforeSendingDoesNotCompleteTheIngestionEarly() {
+        // shard 0 answers 503 once, the client then refuses new orders for it at once (before any request is sent)
+        shardZeroOverloaded = true;
+        Throwable cause = BlockingSupport.<Throwable>await(handler -> context.runOnContext(v ->
+                orderClient.addOrders(0, new OrderBatch(List.of(new Order("order-x", null, null))), RequestTrace.NONE,
+                        result -> handler.handle(Future.succeededFuture(result.cause())))));
+        assertTrue(OrderClient.isOverloaded(cause));
+        shardZeroOverloaded = false;
+        batchesReceived.set(0);
+
+        List<Order> orders = orders(20);
+        Response response = post(orders);
+
+        // the batch of shard 1 is still sent and answered before the response, every order has a result
+        assertEquals(1, batchesReceived.get());
+        assertEquals(1, completions.get());
+        assertOverloaded(response, orders);
+    }
+
+    @Test
+    void shardAnswering503FailsTheIngestionWith503() {
+        shardZeroOverloaded = true;
+
+        List<Order> orders = orders(20);
+        Response response = post(orders);
+
+        assertEquals(SHARDS, batchesReceived.get());
+        assertEquals(1, completions.get());
+        assertOverloaded(response, orders);
+    }
+
+    @Test
+    void invalidBodyFailsWith400() {
+        Response response = post("[{\"orderID\":\"order-1\"}, {\"orderID\":");
+
+        assertEquals(400, response.status);
+        assertNull(response.retryAfter);
+        assertNotNull(response.body.getString("error"));
+    }
+
+    private static void assertOverloaded(Response response, List<Order> orders) {
+        assertEquals(503, response.status);
+        assertEquals(String.valueOf(OrderClient.RETRY_AFTER_SECONDS), response.retryAfter);
+        long shardZeroOrders = orders.stream().filter(order -> OrderShards.shardOf(order.getOrderId(), SHARDS) == 0).count();
+        assertEquals(orders.size() - shardZeroOrders, (long) response.body.getInteger("accepted"));
+        assertEquals(shardZeroOrders, (long) response.body.getInteger("rejected"));
+        JsonArray results = response.body.getJsonArray("results");
+        assertEquals(orders.size(), results.size());
+        for (int i = 0; i < orders.size(); i++) {
+            JsonObject result = results.getJsonObject(i);
+            assertNotNull(result, "no result for order " + i);
+            assertEquals(orders.get(i).getOrderId(), result.getString("orderID"));
+        }
+    }
+
+    private Response post(List<Order> orders) {
+        JsonArray body = new JsonArray();
+        orders.forEach(order -> body.add(new JsonObject().put("orderID", order.getOrderId()).put("orderName", order.getOrderName())));
+        return post(body.encode());
+    }
+
+    private Response post(String body) {
+        return BlockingSupport.await(handler -> {
+            HttpClientRequest request = httpClient.post(port, "localhost", "/add-orders", response -> response.bodyHandler(buffer ->
+                    handler.handle(Future.succeededFuture(new Response(response.statusCode(), response.getHeader("Retry-After"), buffer.toJsonObject())))));
+            request.exceptionHandler(cause -> handler.handle(Future.failedFuture(cause)));
+            request.end(body);
+        });
+    }
+
+    /**
+     * Orders of both shards, fewer than a batch per shard so the batches are sent when the body ends.
+     */
+    private static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orders.add(new Order("order-" + i, "order name " + i, null));
+        }
+        return orders;
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String retryAfter;
+        private final JsonObject body;
+
+        private Response(int status, String retryAfter, JsonObject body) {
+            this.status = status;
+            this.retryAfter = retryAfter;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.vertx;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CredentialStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private Vertx vertx;
+    private String usersFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        vertx = Vertx.vertx();
+        usersFile = writeUsers(new JsonArray()
+                .add(user("admin", "secret"))
+                .add(user("alice", "wonderland"))
+                .add(user("bob", "builder"))).toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        BlockingSupport.<Void>await(vertx::close);
+    }
+
+    @Test
+    void verticlesShareOneStoreUntilTheLastRelease() {
+        CredentialStore first = shared();
+        CredentialStore second = shared();
+        assertSame(first, second);
+        assertTrue(verify(first, "admin", "secret"));
+        assertFalse(verify(second, "admin", "wrong"));
+        assertFalse(verify(second, "nobody", "secret"));
+
+        first.release();
+        assertSame(second, vertx.sharedData().getLocalMap(CredentialStore.SHARED_STORES_MAP).get(usersFile));
+        second.release();
+        assertNull(vertx.sharedData().getLocalMap(CredentialStore.SHARED_STORES_MAP).get(usersFile));
+
+        // a store requested after the last release is a new one, loaded again
+        CredentialStore third = shared();
+        assertTrue(verify(third, "admin", "secret"));
+        third.release();
+    }
+
+    @Test
+    void verifiesEveryUserOfTheFile() {
+        CredentialStore store = shared();
+        assertTrue(verify(store, "admin", "secret"));
+        assertTrue(verify(store, "alice", "wonderland"));
+        assertTrue(verify(store, "bob", "builder"));
+        assertFalse(verify(store, "alice", "builder"));
+        assertFalse(verify(store, "bob", ""));
+        assertFalse(verify(store, "carol", "wonderland"));
+        store.release();
+    }
+
+    @Test
+    void reloadsTheChangedUsersFile() throws IOException, InterruptedException {
+        CredentialStore store = new CredentialStore(vertx, usersFile);
+        BlockingSupport.<Void>await(handler -> vertx.runOnContext(v -> store.load(handler)));
+        vertx.runOnContext(v -> store.watch(50));
+
+        Path file = writeUsers(new JsonArray().add(user("alice", "new-password")).add(user("carol", "secret")));
+        // the modification time moves forward even on file systems with a coarse time resolution
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!verify(store, "carol", "secret") && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(verify(store, "carol", "secret"));
+        assertTrue(verify(store, "alice", "new-password"));
+        assertFalse(verify(store, "alice", "wonderland"));
+        assertFalse(verify(store, "admin", "secret"));
+        vertx.runOnContext(v -> store.close());
+    }
+
+    private Path writeUsers(JsonArray users) throws IOException {
+        return Files.write(directory.resolve("users.json"), users.encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JsonObject user(String username, String password) {
+        return new JsonObject().put("username", username).put("password", password);
+    }
+
+    private CredentialStore shared() {
+        return BlockingSupport.await(handler -> CredentialStore.shared(vertx, usersFile, 1000,
+                store -> handler.handle(Future.succeededFuture(store))));
+    }
+
+    private boolean verify(CredentialStore store, String username, String password) {
+        return BlockingSupport.<Boolean>await(handler -> vertx.runOnContext(v -> store.verify(username, password, handler)));
+    }
+}
@@ -0,0 +1,193 @@
+package com.vertx;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderClientTest {
+
+    private static final int SHARDS = 4;
+
+    private Vertx vertx;
+    private Context context;
+    private OrderClient orderClient;
+    private final List<List<Order>> shardOrders = new ArrayList<>();
+    private final AtomicInteger ordersRead = new AtomicInteger();
+
+    /**
+     * Fake shard consumers answer the page requests and the queries from a list of orders per shard,
+     * they count the orders read by the page requests.
+     */
+    @BeforeEach
+    void setUp() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+        OrderCodecs.register(vertx.eventBus());
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shardOrders.add(new ArrayList<>());
+            List<Order> orders = shardOrders.get(shard);
+            vertx.eventBus().<JsonObject>consumer(OrderShards.address(OrderShards.GET_ORDERS_ADDRESS, shard), message -> {
+                int offset = message.body().getInteger("offset");
+                int limit = message.body().getInteger("limit");
+                List<Order> page = new ArrayList<>(orders.subList(Math.min(offset, orders.size()), Math.min(offset + limit, orders.size())));
+                ordersRead.addAndGet(page.size());
+                message.reply(new OrderPage(page, orders.size()), new DeliveryOptions().addHeader(OrderShards.QUEUE_DEPTH_HEADER, "0"));
+            });
+            vertx.eventBus().<JsonObject>consumer(OrderShards.address(OrderShards.QUERY_ORDERS_ADDRESS, shard), message -> {
+                OrderQuery query = OrderQuery.fromJson(message.body());
+                List<Order> results = orders.stream()
+                        .filter(order -> query.matches(order) && query.isAfterCursor(order))
+                        .sorted(query.comparator())
+                        .limit(query.getLimit())
+                        .collect(Collectors.toList());
+                message.reply(new OrderQueryResult(results, new TreeMap<>()), new DeliveryOptions().addHeader(OrderShards.QUEUE_DEPTH_HEADER, "0"));
+            });
+        }
+        orderClient = new OrderClient(vertx, SHARDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        BlockingSupport.<Void>await(vertx::close);
+    }
+
+    @Test
+    void pageReadsItsShareOfEveryShard() {
+        fillShards(100, 100, 100, 100);
+
+        JsonObject page = getOrders(null, 10);
+
+        assertEquals(10, page.getJsonArray("orders").size());
+        // every shard is asked for limit / shards rounded up, not for the whole limit
+        assertEquals(12, ordersRead.get());
+    }
+
+    @Test
+    void pagesOfUnevenShardsReturnEveryOrderOnce() {
+        fillShards(0, 3, 250, 997);
+        int total = 1250;
+        int limit = 100;
+
+        Set<String> orderIds = new HashSet<>();
+        int pages = 0;
+        String cursor = null;
+        do {
+            JsonObject page = getOrders(cursor, limit);
+            pages++;
+            for (int i = 0; i < page.getJsonArray("orders").size(); i++) {
+                assertTrue(orderIds.add(page.getJsonArray("orders").getJsonObject(i).getString("orderId")));
+            }
+            cursor = page.getString("nextCursor");
+            assertTrue(cursor == null || page.getJsonArray("orders").size() == limit);
+        } while (cursor != null);
+
+        assertEquals(total, orderIds.size());
+        assertEquals((total + limit - 1) / limit, pages);
+        // the shards that run out are refilled from the others, a page reads at most a few orders more than its limit
+        assertTrue(ordersRead.get() <= total + pages * SHARDS, "orders read: " + ordersRead.get());
+    }
+
+    @Test
+    void emptyShardsReturnALastEmptyPage() {
+        JsonObject page = getOrders(null, 10);
+
+        assertEquals(0, page.getJsonArray("orders").size());
+        assertNull(page.getString("nextCursor"));
+    }
+
+    @Test
+    void queryCursorHoldsTheDateKeyAndOrderId() {
+        // long names, date-times with an offset and milliseconds, three orders per date key
+        String longName = "x".repeat(2000);
+        for (int i = 0; i < 60; i++) {
+            String date = String.format("2023-04-03T%02d:15:30.123-02:00", i / 3);
+            shardOrders.get(i % SHARDS).add(new Order("order-" + i, longName + i, date));
+        }
+        OrderQuery query = new OrderQuery(OrderQuery.dateKey("2023-04-03"), OrderQuery.dateEndKey("2023-04-03"), null, 7, null);
+
+        List<String> orderIds = queryAll(query, 60);
+
+        assertEquals(60, new HashSet<>(orderIds).size());
+        assertEquals("order-0", orderIds.get(0));
+        assertEquals("order-59", orderIds.get(59));
+    }
+
+    @Test
+    void queryCursorHoldsTheOrderNameAndOrderId() {
+        // long dates and non-ASCII names, several orders share a name
+        for (int i = 0; i < 50; i++) {
+            shardOrders.get(i % SHARDS).add(new Order("order-" + i, "commande ü" + (i / 4), "2023-04-03T10:15:30.123456789+02:00[" + "x".repeat(500) + "]"));
+        }
+        OrderQuery query = new OrderQuery(null, null, "commande ", 6, null);
+
+        List<String> orderIds = queryAll(query, 50);
+
+        assertEquals(50, new HashSet<>(orderIds).size());
+    }
+
+    @Test
+    void queryRefusesTheCursorOfAnotherKindOfQuery() {
+        for (int i = 0; i < 10; i++) {
+            shardOrders.get(i % SHARDS).add(new Order("order-" + i, "name " + i, "2023-04-03"));
+        }
+        OrderQuery byName = new OrderQuery(null, null, "name", 2, null);
+        OrderQuery byDate = new OrderQuery(OrderQuery.dateKey("2023-04-03"), null, null, 2, null);
+        String nameCursor = query(byName, null).getString("nextCursor");
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> query(byDate, nameCursor));
+        assertTrue(failure.getCause() instanceof IllegalArgumentException);
+    }
+
+    /**
+     * This method reads every page of a query and checks that each cursor stays small, whatever the size of the orders.
+     *
+     * @return the orderIds, in the order of the pages
+     */
+    private List<String> queryAll(OrderQuery query, int total) {
+        List<String> orderIds = new ArrayList<>();
+        String cursor = null;
+        do {
+            JsonObject page = query(query, cursor);
+            for (int i = 0; i < page.getJsonArray("orders").size(); i++) {
+                orderIds.add(page.getJsonArray("orders").getJsonObject(i).getString("orderId"));
+            }
+            cursor = page.getString("nextCursor");
+            assertTrue(cursor == null || cursor.length() < 100, "cursor: " + cursor);
+        } while (cursor != null && orderIds.size() <= total);
+        assertEquals(total, orderIds.size());
+        return orderIds;
+    }
+
+    private JsonObject query(OrderQuery query, String cursor) {
+        return BlockingSupport.await(handler -> context.runOnContext(v -> orderClient.queryOrders(query, cursor, RequestTrace.NONE, handler)));
+    }
+
+    private void fillShards(int... sizes) {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            for (int i = 0; i < sizes[shard]; i++) {
+                shardOrders.get(shard).add(new Order("shard-" + shard + "-order-" + i, "order name " + i, null));
+            }
+        }
+    }
+
+    private JsonObject getOrders(String cursor, int limit) {
+        return BlockingSupport.await(handler -> context.runOnContext(v -> orderClient.getOrders(cursor, limit, RequestTrace.NONE, handler)));
+    }
+}
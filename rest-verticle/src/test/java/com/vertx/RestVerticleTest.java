@@ -0,0 +1,147 @@
+package com.vertx;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The RestVerticle deployed on a clustered Vert.x instance (a single Hazelcast member on the loopback), like in production:
+ * the sessions are kept in the clustered session store, whose lookups are asynchronous.
+ * Fake shard consumers stand in for the OrderVerticle module and accept every order.
+ */
+class RestVerticleTest {
+
+    @TempDir
+    static Path directory;
+
+    private static Vertx vertx;
+    private static HttpClient httpClient;
+    private static int port;
+    private static final Queue<String> addedOrderIds = new ConcurrentLinkedQueue<>();
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        vertx = BlockingSupport.await(handler -> Vertx.clusteredVertx(ClusterConfig.clusteredOptions("127.0.0.1", List.of("127.0.0.1")), handler));
+        OrderCodecs.register(vertx.eventBus());
+        for (int shard = 0; shard < OrderShards.count(); shard++) {
+            vertx.eventBus().<Order>consumer(OrderShards.address(OrderShards.ADD_ORDER_ADDRESS, shard), message -> {
+                addedOrderIds.add(message.body().getOrderId());
+                message.reply(OrderResult.succeeded("order added"), new DeliveryOptions().addHeader(OrderShards.QUEUE_DEPTH_HEADER, "0"));
+            });
+            vertx.eventBus().<OrderBatch>consumer(OrderShards.address(OrderShards.ADD_ORDERS_ADDRESS, shard), message -> {
+                message.body().getOrders().forEach(order -> addedOrderIds.add(order.getOrderId()));
+                List<OrderResult> results = message.body().getOrders().stream()
+                        .map(order -> OrderResult.succeeded("order added"))
+                        .collect(Collectors.toList());
+                message.reply(new OrderBatchResult(results), new DeliveryOptions().addHeader(OrderShards.QUEUE_DEPTH_HEADER, "0"));
+            });
+        }
+
+        JsonArray users = new JsonArray().add(new JsonObject().put("username", "admin").put("password", "secret"));
+        Path usersFile = Files.write(directory.resolve("users.json"), users.encode().getBytes(StandardCharsets.UTF_8));
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        JsonObject config = new JsonObject().put("httpPort", port).put("usersFile", usersFile.toString());
+        BlockingSupport.<String>await(handler -> vertx.deployVerticle(RestVerticle.class.getName(), new DeploymentOptions().setConfig(config), handler));
+        httpClient = vertx.createHttpClient();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        BlockingSupport.<Void>await(vertx::close);
+    }
+
+    @Test
+    void addsOrderWithClusteredSession() {
+        String cookie = login();
+
+        Response added = post("/add-order", cookie, new JsonObject().put("orderID", "order-single").put("orderName", "single").encode());
+        assertEquals(200, added.status, added.body);
+        assertTrue(addedOrderIds.contains("order-single"));
+
+        Response logout = post("/logout", cookie, "{}");
+        assertEquals(200, logout.status, logout.body);
+        assertEquals(401, post("/add-order", cookie, new JsonObject().put("orderID", "order-after-logout").encode()).status);
+    }
+
+    @Test
+    void addsOrdersThroughTheStreamedBulkRoute() {
+        assertEquals(401, post("/add-orders", null, "[]").status);
+
+        String cookie = login();
+        JsonArray orders = new JsonArray();
+        for (int i = 0; i < 20; i++) {
+            orders.add(new JsonObject().put("orderID", "bulk-" + i).put("orderName", "bulk order " + i));
+        }
+        Response added = post("/add-orders", cookie, orders.encode());
+
+        assertEquals(200, added.status, added.body);
+        JsonObject summary = new JsonObject(added.body);
+        assertEquals(20, summary.getInteger("accepted"));
+        assertEquals(20, summary.getJsonArray("results").size());
+        assertTrue(addedOrderIds.contains("bulk-0") && addedOrderIds.contains("bulk-19"));
+    }
+
+    /**
+     * @return the session cookie of a logged in user
+     */
+    private static String login() {
+        Response response = post("/login", null, new JsonObject().put("username", "admin").put("password", "secret").encode());
+        assertEquals(200, response.status, response.body);
+        assertNotNull(response.cookie);
+        return response.cookie;
+    }
+
+    private static Response post(String path, String cookie, String body) {
+        return BlockingSupport.await(handler -> {
+            HttpClientRequest request = httpClient.post(port, "localhost", path, response -> response.bodyHandler(buffer -> {
+                String sessionCookie = response.cookies().stream()
+                        .map(value -> value.split(";", 2)[0])
+                        .findFirst()
+                        .orElse(null);
+                handler.handle(Future.succeededFuture(new Response(response.statusCode(), sessionCookie, buffer.toString())));
+            }));
+            request.exceptionHandler(cause -> handler.handle(Future.failedFuture(cause)));
+            if (cookie != null) {
+                request.putHeader("Cookie", cookie);
+            }
+            request.putHeader("content-type", "application/json").end(body);
+        });
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String cookie;
+        private final String body;
+
+        private Response(int status, String cookie, String body) {
+            this.status = status;
+            this.cookie = cookie;
+            this.body = body;
+        }
+    }
+}